@@ -5,6 +5,9 @@ import javafx.stage.Stage;
 import model.DialogService;
 import model.Manager;
 
+import static model.Constants.WATCHED_THEMES_FOLDER_PROPERTY;
+
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,13 +16,29 @@ public class Program extends Application {
 
     private final static Logger LOGGER = Logger.getLogger(Program.class.getName());
 
+    private Manager manager;
+
     @Override
     public void start(Stage stage){
         LOGGER.log(Level.INFO, "Welcome to Memory v.1.0 !");
 
-        Manager manager = new Manager();
+        manager = new Manager();
+
+        //Keep the themes of an additional folder up to date while the application is running
+        String watchedThemesFolder = System.getProperty(WATCHED_THEMES_FOLDER_PROPERTY);
+
+        if(watchedThemesFolder != null && !manager.watchThemes(Paths.get(watchedThemesFolder).toUri()))
+            LOGGER.log(Level.WARNING, "Couldn't load the themes of " + watchedThemesFolder + " !");
+
         manager.loadPlayers();
         DialogService.openFirstView(manager);
     }
 
+    @Override
+    public void stop(){
+        //Release the watch services and their threads
+        if(manager != null)
+            manager.stopWatchingThemes();
+    }
+
 }
@@ -0,0 +1,114 @@
+package data_initializers;
+
+import javafx.collections.FXCollections;
+import model.DataLoadingException;
+import model.DataManager;
+import model.Player;
+import utils.FileFingerprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DataManager keeping in memory the players loaded or saved by another data manager <br>
+ *
+ * The file of the data manager is fingerprinted (@see {@link FileFingerprint}) : as long as it doesn't change,
+ * the players are returned from memory instead of being parsed again. <br>
+ * The new scores are saved by loading the players then saving them again (@see {@link DataManager#recordScores(List)}) :
+ * both go through the cache, so that the file is only parsed if another application has written it meanwhile. <br>
+ * Note : each load returns new players (sharing the same scores), so that modifying them doesn't alter the cache
+ *
+ * @author lturpinat
+ */
+public class CachedDataManager implements DataManager {
+
+    private final DataManager dataManager;
+
+    private List<Player> players;
+    private FileFingerprint fingerprint;
+
+    private final static Logger LOGGER = Logger.getLogger(CachedDataManager.class.getName());
+
+    /**
+     * Construct a CachedDataManager caching the players of another data manager
+     * @param dataManager data manager reading and writing the file
+     */
+    public CachedDataManager(DataManager dataManager){
+        assert dataManager != null : "The cached data manager shouldn't be null";
+
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * Load the players, from memory if the file hasn't changed since they were last loaded or saved
+     * @return players loaded
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    @Override
+    public synchronized List<Player> loadPlayers() throws DataLoadingException {
+        FileFingerprint currentFingerprint = getFingerprint();
+
+        if(players == null || currentFingerprint == null || !currentFingerprint.equals(fingerprint)){
+            players = dataManager.loadPlayers();
+            fingerprint = currentFingerprint;
+        }
+        else
+            LOGGER.log(Level.FINE, "Players of " + getFile() + " haven't changed, they are loaded from memory.");
+
+        return copyOf(players);
+    }
+
+    /**
+     * Save the players and keep them in memory
+     * @param players players to save
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    @Override
+    public synchronized void savePlayers(List<Player> players) throws DataLoadingException {
+        //The cache is only valid if the players are saved
+        this.players = null;
+
+        dataManager.savePlayers(players);
+
+        this.players = copyOf(players);
+        fingerprint = getFingerprint();
+    }
+
+    @Override
+    public File getFile() {
+        return dataManager.getFile();
+    }
+
+    /**
+     * Get the fingerprint of the file of the data manager
+     * @return the fingerprint or null if the players cannot be cached (no file or unreadable attributes)
+     */
+    private FileFingerprint getFingerprint() {
+        if(getFile() == null)
+            return null;
+
+        try {
+            return FileFingerprint.of(getFile());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't read the attributes of " + getFile() + ", players won't be cached.", e);
+            return null;
+        }
+    }
+
+    private static List<Player> copyOf(List<Player> players) {
+        List<Player> copy = new ArrayList<>(players.size());
+
+        players.forEach(player -> copy.add(new Player(player.getName(), FXCollections.observableArrayList(player.getScores()))));
+
+        return copy;
+    }
+
+    @Override
+    public String toString(){
+        return dataManager.toString();
+    }
+}
@@ -6,6 +6,8 @@ import model.DataManager;
 import model.Player;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -14,7 +16,7 @@ import java.util.logging.Logger;
 import static model.Constants.DEFAULT_FILE_NAME;
 
 /**
- * DataManager for loading and saving using binary serialization
+ * DataManager for loading and saving using a compact binary format (@see {@link BinaryPlayerCodec})
  *
  * @author lturpinat
  */
@@ -45,58 +47,61 @@ public class BinaryDataManager implements DataManager {
     }
 
     /**
-     * Load the players using binary deserialization
+     * Load the players using the binary format (@see {@link BinaryPlayerCodec}) <br>
+     * Note : a file written with Java serialization is migrated to the binary format once
      * @return players loaded
      * @throws DataLoadingException if anything goes wrong while loading data
      */
     @Override
     public List<Player> loadPlayers() throws DataLoadingException {
-        List<Player> players = new ArrayList<>();
-
-        try (ObjectInputStream oos = new ObjectInputStream(new FileInputStream(file))){
-
-            BinaryPlayer binaryPlayer;
-
-            do{
-                binaryPlayer = (BinaryPlayer) oos.readObject();
+        if(!file.exists()){
+            LOGGER.log(Level.WARNING, "Couldn't find " + file + " file. Abort file loading! Database will be populated with empty data.");
+            return new ArrayList<>();
+        }
 
-                if(binaryPlayer != null)
-                    players.add(binaryPlayer.getModel());
-            } while(binaryPlayer != null);
+        try {
+            if(BinaryPlayerCodec.isLegacyFile(file))
+                return LegacyBinaryMigrator.migrate(file);
 
-        }
-        catch(EOFException ignored){
-            //EOFException is ignored as it will be thrown all time : we don't know how much BinaryPlayers there
-            //are to read and need to cycle until we hit a null or EOFException.
-        }
-        catch(FileNotFoundException e){
-            LOGGER.log(Level.WARNING, "Couldn't find " + DEFAULT_FILE_NAME + "." + FILE_EXTENSION + " file. Abort file loading! Database will be populated with empty data.");
+            try (InputStream input = new FileInputStream(file)){
+                return BinaryPlayerCodec.read(input);
+            }
         }
         catch (IOException | ClassNotFoundException e) {
             throw new DataLoadingException("Cannot load data from binary data file!", e);
         }
-
-        return players;
     }
 
     /**
-     * Save the players using binary serialization
+     * Save the players using the binary format (@see {@link BinaryPlayerCodec}) <br>
+     * Note : the players are written (and synced) in a temporary file first, so that a crash never leaves a partial file
      * @param players players to save
      * @throws DataLoadingException if anything goes wrong while saving data
      */
     @Override
     public void savePlayers(List<Player> players) throws DataLoadingException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))){
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        try {
+            try (FileOutputStream output = new FileOutputStream(temporaryFile)){
+                BinaryPlayerCodec.write(players, output);
 
-            for(Player player : players)
-                oos.writeObject(new BinaryPlayer(player));
+                //Written on the disk before replacing the file
+                output.getChannel().force(false);
+            }
 
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             e.printStackTrace();
             throw new DataLoadingException("Cannot save data with binary data file!", e);
         }
     }
 
+    @Override
+    public File getFile() {
+        return file;
+    }
+
     @Override
     public String toString(){
         return "Binary";
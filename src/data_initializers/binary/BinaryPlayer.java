@@ -12,7 +12,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Binary "version" of the {@link Player} class for serialization
+ * Binary "version" of the {@link Player} class for serialization <br>
+ * Note : only kept to read the files written before {@link BinaryPlayerCodec} (@see {@link LegacyBinaryMigrator})
  *
  * @author lturpinat
  */
@@ -0,0 +1,209 @@
+package data_initializers.binary;
+
+import javafx.collections.FXCollections;
+import model.BoardConfiguration;
+import model.Player;
+import model.Score;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format of the players <br>
+ *
+ * The file starts with a header (magic number and format version), followed by the number of players and the players : <br>
+ * - player : name (length-prefixed UTF-8), number of scores, scores <br>
+ * - score : epoch day, duration in milliseconds, height, width (all varints) and error ratio (raw double) <br>
+ * Varints store 7 bits per byte (the highest bit telling if another byte follows), so that small values like
+ * grid dimensions only take a single byte.
+ *
+ * @author lturpinat
+ */
+final class BinaryPlayerCodec {
+
+    /**
+     * First bytes of the file ("MEMO")
+     */
+    static final int MAGIC = 0x4D454D4F;
+
+    static final byte VERSION = 1;
+
+    /**
+     * First bytes of a file written with Java serialization (@see {@link ObjectStreamConstants})
+     */
+    private static final short SERIALIZATION_MAGIC = ObjectStreamConstants.STREAM_MAGIC;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BinaryPlayerCodec(){}
+
+    /**
+     * Check if a file has been written with Java serialization (the format used before this codec)
+     * @param file file to check
+     * @return true if the file starts with the Java serialization header
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isLegacyFile(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readShort() == SERIALIZATION_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the players
+     * @param players players to write
+     * @param outputStream destination of the players, which is not closed
+     * @throws IOException if writing fails
+     */
+    static void write(List<Player> players, OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+        writeVarLong(output, players.size());
+
+        for (Player player : players)
+            writePlayer(output, player);
+
+        output.flush();
+    }
+
+    /**
+     * Read the players
+     * @param inputStream source of the players, which is not closed
+     * @return players read, or an empty list if the source is empty
+     * @throws IOException if reading fails or the data isn't in this format
+     */
+    static List<Player> read(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+
+        int magic;
+
+        try {
+            magic = input.readInt();
+        } catch (EOFException e) {
+            //An empty file doesn't contain any player
+            return new ArrayList<>();
+        }
+
+        if (magic != MAGIC)
+            throw new StreamCorruptedException("Not a players file!");
+
+        byte version = input.readByte();
+
+        if (version != VERSION)
+            throw new StreamCorruptedException("Unsupported players file version " + version + "!");
+
+        int playersCount = readVarInt(input);
+        List<Player> players = new ArrayList<>(playersCount);
+
+        for (int i = 0; i < playersCount; i++)
+            players.add(readPlayer(input));
+
+        return players;
+    }
+
+    static void writePlayer(DataOutput output, Player player) throws IOException {
+        writeString(output, player.getName());
+        writeVarLong(output, player.getScores().size());
+
+        for (Score score : player.getScores())
+            writeScore(output, score);
+    }
+
+    static Player readPlayer(DataInput input) throws IOException {
+        String name = readString(input);
+        int scoresCount = readVarInt(input);
+        List<Score> scores = new ArrayList<>(scoresCount);
+
+        for (int i = 0; i < scoresCount; i++)
+            scores.add(readScore(input));
+
+        return new Player(name, FXCollections.observableArrayList(scores));
+    }
+
+    static void writeScore(DataOutput output, Score score) throws IOException {
+        //Dates before 1970 are negative : they are zigzag encoded to stay short
+        long epochDay = score.getDate().toEpochDay();
+
+        writeVarLong(output, (epochDay << 1) ^ (epochDay >> 63));
+        writeVarLong(output, score.getDuration().toMillis());
+        writeVarLong(output, score.getBoardConfiguration().getHeight());
+        writeVarLong(output, score.getBoardConfiguration().getWidth());
+        output.writeDouble(score.getErrorRation());
+    }
+
+    static Score readScore(DataInput input) throws IOException {
+        long zigzagEpochDay = readVarLong(input);
+
+        LocalDate date = LocalDate.ofEpochDay((zigzagEpochDay >>> 1) ^ -(zigzagEpochDay & 1));
+        Duration duration = Duration.ofMillis(readVarLong(input));
+        int height = readVarInt(input);
+        int width = readVarInt(input);
+        double errorRatio = input.readDouble();
+
+        try {
+            return new Score(date, duration, new BoardConfiguration(height, width), errorRatio);
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException("Invalid score: " + e.getMessage());
+        }
+    }
+
+    static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        writeVarLong(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInput input) throws IOException {
+        byte[] bytes = new byte[readVarInt(input)];
+        input.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write an unsigned varint
+     * @param output destination
+     * @param value value, considered as unsigned
+     * @throws IOException if writing fails
+     */
+    static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        output.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new StreamCorruptedException("Malformed varint!");
+    }
+
+    static int readVarInt(DataInput input) throws IOException {
+        long value = readVarLong(input);
+
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw new StreamCorruptedException("Value out of range: " + value + "!");
+
+        return (int) value;
+    }
+}
@@ -11,7 +11,8 @@ import java.time.Duration;
 import java.time.LocalDate;
 
 /**
- * Binary "version" of the {@link Score} class for serialization
+ * Binary "version" of the {@link Score} class for serialization <br>
+ * Note : only kept to read the files written before {@link BinaryPlayerCodec} (@see {@link LegacyBinaryMigrator})
  *
  * @author lturpinat
  */
@@ -0,0 +1,452 @@
+package data_initializers.binary;
+
+import javafx.collections.FXCollections;
+import model.*;
+import utils.FileFingerprint;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static model.Constants.DEFAULT_FILE_NAME;
+
+/**
+ * DataManager appending each new score to a journal instead of rewriting all the players <br>
+ *
+ * The data is made of two files : <br>
+ * - a snapshot : sequence number of the last journal record it contains, followed by the players
+ *   (@see {@link BinaryPlayerCodec}) <br>
+ * - a journal : one record per score, made of its length, its CRC32, its sequence number, the player name and the score <br>
+ * Once the journal is large enough, it is compacted into the snapshot in the background. <br>
+ * When loading, only the records more recent than the snapshot are replayed, and a record partially written
+ * during a crash is truncated. <br>
+ * The loaded players are kept in memory : as long as the snapshot doesn't change, loading them again only
+ * replays the records appended to the journal since the last load. <br>
+ * Note : the files are meant to be used by a single application at a time
+ *
+ * @author lturpinat
+ */
+public class JournaledDataManager implements DataManager {
+
+    /**
+     * Default file extension for saving and loading
+     */
+    private static final String FILE_EXTENSION = "snapshot";
+    private static final String JOURNAL_EXTENSION = "journal";
+
+    /**
+     * Number of journal records after which the journal is compacted into the snapshot
+     */
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAXIMAL_RECORD_SIZE = 64 * 1024;
+
+    /**
+     * Background thread compacting the journals <br>
+     * Note : it is a daemon thread so that it never prevents the application from stopping
+     */
+    private static final ExecutorService COMPACTION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final static Logger LOGGER = Logger.getLogger(JournaledDataManager.class.getName());
+
+    private final File file;
+    private final File journalFile;
+
+    /**
+     * Sequence number of the last journal record, or -1 if it isn't known yet
+     */
+    private long lastSequence = -1;
+
+    /**
+     * Number of records in the journal
+     */
+    private int journalRecords;
+
+    private boolean compacting;
+
+    /**
+     * Incremented each time all the players are saved, so that an older compaction doesn't overwrite the snapshot
+     */
+    private int snapshotGeneration;
+
+    /**
+     * Players loaded along with the fingerprints of the files they were loaded from
+     */
+    private Map<String, Player> loadedPlayers;
+    private FileFingerprint loadedSnapshot;
+    private FileFingerprint loadedJournal;
+    private long loadedSequence;
+
+    /**
+     * Construct a JournaledDataManager using a default file for saving data <br>
+     * The snapshot corresponds to "DEFAULT_FILE_NAME.FILE_EXTENSION" @see {@link Constants}
+     */
+    public JournaledDataManager(){
+        this(new File(String.join(".", DEFAULT_FILE_NAME, FILE_EXTENSION)));
+    }
+
+    /**
+     * Construct a JournaledDataManager which will load and save using {@code file} as snapshot <br>
+     * The journal is stored next to it, with the {@code JOURNAL_EXTENSION} extension
+     * @param file file where to load and save the snapshot
+     */
+    public JournaledDataManager(File file){
+        this.file = file;
+        journalFile = new File(String.join(".", file.getPath(), JOURNAL_EXTENSION));
+    }
+
+    /**
+     * Load the players from the snapshot, then replay the journal records it doesn't contain yet <br>
+     * Note : if the snapshot hasn't changed since the last load, only the new journal records are replayed
+     * @return players loaded
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    @Override
+    public synchronized List<Player> loadPlayers() throws DataLoadingException {
+        try {
+            FileFingerprint snapshotFingerprint = FileFingerprint.of(file);
+            FileFingerprint journalFingerprint = FileFingerprint.of(journalFile);
+
+            boolean incremental = loadedPlayers != null && snapshotFingerprint != null
+                    && snapshotFingerprint.equals(loadedSnapshot)
+                    && (loadedJournal == null || loadedJournal.isSameFile(journalFingerprint));
+
+            if(incremental){
+                //Only the records appended since the last load are read
+                loadedSequence = replayJournal(loadedSequence, loadedPlayers, loadedJournal == null ? 0 : loadedJournal.getSize());
+            }
+            else {
+                Snapshot snapshot = readSnapshot();
+                loadedPlayers = new LinkedHashMap<>();
+
+                snapshot.players.forEach(player -> loadedPlayers.put(player.getName(), player));
+
+                loadedSequence = replayJournal(snapshot.lastSequence, loadedPlayers, 0);
+                loadedSnapshot = snapshotFingerprint;
+            }
+
+            loadedJournal = FileFingerprint.of(journalFile);
+
+            //Each load returns new players, so that modifying them doesn't alter the loaded ones
+            List<Player> players = new ArrayList<>(loadedPlayers.size());
+
+            loadedPlayers.values().forEach(player ->
+                    players.add(new Player(player.getName(), FXCollections.observableArrayList(player.getScores()))));
+
+            return players;
+        } catch (IOException e) {
+            loadedPlayers = null;
+            throw new DataLoadingException("Cannot load data from journaled data files!", e);
+        }
+    }
+
+    /**
+     * Save all the players in a new snapshot and empty the journal
+     * @param players players to save
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    @Override
+    public synchronized void savePlayers(List<Player> players) throws DataLoadingException {
+        try {
+            installSnapshot(writeSnapshot(players, getLastSequence(), "tmp"));
+            snapshotGeneration++;
+
+            //The journal records are all in the snapshot now
+            try (FileChannel journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE)){
+                journal.truncate(0);
+            }
+
+            journalRecords = 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DataLoadingException("Cannot save data with journaled data files!", e);
+        }
+    }
+
+    /**
+     * Append the scores to the journal at once, without rewriting the players <br>
+     * Note : the journal is compacted in the background once it reaches {@code COMPACTION_THRESHOLD} records
+     * @param newScores players holding only their new scores
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    @Override
+    public synchronized void recordScores(List<Player> newScores) throws DataLoadingException {
+        try {
+            long sequence = getLastSequence();
+            int records = 0;
+
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            DataOutputStream batchOutput = new DataOutputStream(batch);
+
+            for(Player player : newScores){
+                for(Score score : player.getScores()){
+                    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                    DataOutputStream output = new DataOutputStream(payload);
+
+                    output.writeLong(++sequence);
+                    BinaryPlayerCodec.writeString(output, player.getName());
+                    BinaryPlayerCodec.writeScore(output, score);
+
+                    byte[] payloadBytes = payload.toByteArray();
+                    CRC32 crc = new CRC32();
+                    crc.update(payloadBytes, 0, payloadBytes.length);
+
+                    batchOutput.writeInt(payloadBytes.length);
+                    batchOutput.writeInt((int) crc.getValue());
+                    batchOutput.write(payloadBytes);
+                    records++;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+
+            //The records are written at once and forced to the disk before the scores are acknowledged
+            try (FileChannel journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)){
+                while(buffer.hasRemaining())
+                    journal.write(buffer);
+
+                journal.force(false);
+            }
+
+            lastSequence = sequence;
+            journalRecords += records;
+
+            if(journalRecords >= COMPACTION_THRESHOLD && !compacting){
+                compacting = true;
+                COMPACTION_EXECUTOR.execute(this::compact);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DataLoadingException("Cannot record the scores in the journal!", e);
+        }
+    }
+
+    @Override
+    public boolean appendsScores() {
+        return true;
+    }
+
+    /**
+     * Merge the journal into the snapshot <br>
+     * The new snapshot is written without blocking the new records, which are kept in the journal
+     */
+    private void compact() {
+        try {
+            List<Player> players;
+            long compactedSequence;
+            long compactedSize;
+            int generation;
+
+            synchronized (this) {
+                players = loadPlayers();
+                compactedSequence = lastSequence;
+                compactedSize = journalFile.length();
+                generation = snapshotGeneration;
+            }
+
+            File snapshot = writeSnapshot(players, compactedSequence, "compaction");
+
+            synchronized (this) {
+                //All the players have been saved meanwhile : this snapshot is outdated
+                if(generation != snapshotGeneration){
+                    Files.delete(snapshot.toPath());
+                    compacting = false;
+                    return;
+                }
+
+                installSnapshot(snapshot);
+
+                //Keep the records appended during the compaction
+                //Note : if the application stops before, the compacted records are skipped when loading (@see replayJournal())
+                File temporaryJournal = new File(journalFile.getPath() + ".tmp");
+
+                try (FileChannel source = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+                     FileChannel destination = FileChannel.open(temporaryJournal.toPath(), StandardOpenOption.WRITE,
+                             StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+                    long position = compactedSize;
+
+                    while(position < source.size())
+                        position += source.transferTo(position, source.size() - position, destination);
+
+                    destination.force(false);
+                }
+
+                Files.move(temporaryJournal.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                journalRecords = (int) (lastSequence - compactedSequence);
+                compacting = false;
+            }
+
+            LOGGER.log(Level.INFO, "Journal " + journalFile + " compacted up to record " + compactedSequence + ".");
+        } catch (IOException | DataLoadingException e) {
+            LOGGER.log(Level.WARNING, "Couldn't compact the journal " + journalFile + ", it will be tried again.", e);
+
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Get the sequence number of the last record, reading the files if it isn't known yet
+     */
+    private long getLastSequence() throws IOException {
+        if(lastSequence < 0)
+            replayJournal(readSnapshot().lastSequence, null, 0);
+
+        return lastSequence;
+    }
+
+    /**
+     * Read the journal records and apply those more recent than the snapshot <br>
+     * The journal is truncated at the first record which is incomplete or corrupted (eg. a crash while writing it)
+     * @param appliedSequence sequence number of the last record already applied to the players
+     * @param players players to update, by name, or null to only read the sequence numbers
+     * @param from position of the first record to read, 0 to read the whole journal
+     * @return sequence number of the last record applied to the players
+     * @throws IOException if the journal cannot be read
+     */
+    private long replayJournal(long appliedSequence, Map<String, Player> players, long from) throws IOException {
+        //The records after the position have been appended (and counted) since the last load
+        if(from == 0){
+            lastSequence = appliedSequence;
+            journalRecords = 0;
+        }
+
+        if(!journalFile.exists())
+            return appliedSequence;
+
+        long validSize = from;
+        long journalSize = journalFile.length();
+
+        try (FileInputStream fileInput = new FileInputStream(journalFile)){
+            fileInput.getChannel().position(from);
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(fileInput, 64 * 1024));
+
+            while(validSize < journalSize){
+                if(journalSize - validSize < RECORD_HEADER_SIZE)
+                    break;
+
+                int length = input.readInt();
+                int checksum = input.readInt();
+
+                if(length <= 0 || length > MAXIMAL_RECORD_SIZE || journalSize - validSize - RECORD_HEADER_SIZE < length)
+                    break;
+
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, length);
+
+                if((int) crc.getValue() != checksum)
+                    break;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long sequence = record.readLong();
+
+                validSize += RECORD_HEADER_SIZE + length;
+
+                if(from == 0)
+                    journalRecords++;
+
+                if(sequence <= appliedSequence)
+                    continue;
+
+                appliedSequence = sequence;
+                lastSequence = Math.max(lastSequence, sequence);
+
+                if(players != null){
+                    String playerName = BinaryPlayerCodec.readString(record);
+                    Score score = BinaryPlayerCodec.readScore(record);
+
+                    players.computeIfAbsent(playerName, name -> new Player(name, FXCollections.observableArrayList()))
+                            .getScores().add(score);
+                }
+            }
+        }
+
+        if(validSize < journalSize){
+            LOGGER.log(Level.WARNING, "The journal " + journalFile + " ends with an incomplete record, it is truncated.");
+
+            try (FileChannel journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE)){
+                journal.truncate(validSize);
+            }
+        }
+
+        return appliedSequence;
+    }
+
+    private Snapshot readSnapshot() throws IOException {
+        if(!file.exists()){
+            LOGGER.log(Level.WARNING, "Couldn't find " + file + " file. Database will be populated with the journal only.");
+            return new Snapshot(0, new ArrayList<>());
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            return new Snapshot(input.readLong(), BinaryPlayerCodec.read(input));
+        }
+    }
+
+    /**
+     * Write a snapshot in a temporary file, so that a crash never leaves a partial snapshot
+     * @return the temporary file, to be installed (@see installSnapshot())
+     */
+    private File writeSnapshot(List<Player> players, long sequence, String temporaryExtension) throws IOException {
+        File temporaryFile = new File(String.join(".", file.getPath(), temporaryExtension));
+
+        try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)){
+            DataOutputStream output = new DataOutputStream(fileOutput);
+
+            output.writeLong(sequence);
+            BinaryPlayerCodec.write(players, output);
+
+            fileOutput.getChannel().force(false);
+        }
+
+        return temporaryFile;
+    }
+
+    private void installSnapshot(File temporaryFile) throws IOException {
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString(){
+        return "Journal";
+    }
+
+    private static final class Snapshot {
+        private final long lastSequence;
+        private final List<Player> players;
+
+        private Snapshot(long lastSequence, List<Player> players) {
+            this.lastSequence = lastSequence;
+            this.players = players;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package data_initializers.binary;
+
+import model.Player;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One-shot migration of the players file from Java serialization (@see {@link BinaryPlayer}) to the
+ * format of {@link BinaryPlayerCodec} <br>
+ * The legacy file is kept next to the migrated one, with the {@code LEGACY_EXTENSION} extension.
+ *
+ * @author lturpinat
+ */
+final class LegacyBinaryMigrator {
+
+    static final String LEGACY_EXTENSION = "legacy";
+
+    private final static Logger LOGGER = Logger.getLogger(LegacyBinaryMigrator.class.getName());
+
+    private LegacyBinaryMigrator(){}
+
+    /**
+     * Read a legacy players file and rewrite it with the current format
+     * @param file players file written with Java serialization
+     * @return players read
+     * @throws IOException if the legacy file cannot be read or the migrated file cannot be written
+     * @throws ClassNotFoundException if the legacy file contains unknown classes
+     */
+    static List<Player> migrate(File file) throws IOException, ClassNotFoundException {
+        LOGGER.log(Level.INFO, "Migrating " + file + " to the binary format v." + BinaryPlayerCodec.VERSION + "...");
+
+        List<Player> players = readLegacyPlayers(file);
+
+        File migratedFile = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream output = new FileOutputStream(migratedFile)) {
+            BinaryPlayerCodec.write(players, output);
+
+            //Written on the disk before replacing the file
+            output.getChannel().force(false);
+        }
+
+        //Keep the legacy file until the migrated one is in place
+        Files.copy(file.toPath(), new File(file.getPath() + "." + LEGACY_EXTENSION).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(migratedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOGGER.log(Level.INFO, "Migrated " + players.size() + " players !");
+
+        return players;
+    }
+
+    private static List<Player> readLegacyPlayers(File file) throws IOException, ClassNotFoundException {
+        List<Player> players = new ArrayList<>();
+
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))){
+
+            BinaryPlayer binaryPlayer;
+
+            do{
+                binaryPlayer = (BinaryPlayer) ois.readObject();
+
+                if(binaryPlayer != null)
+                    players.add(binaryPlayer.getModel());
+            } while(binaryPlayer != null);
+
+        }
+        catch(EOFException ignored){
+            //EOFException is ignored as it will be thrown all time : we don't know how much BinaryPlayers there
+            //are to read and need to cycle until we hit a null or EOFException.
+        }
+
+        return players;
+    }
+}
@@ -0,0 +1,544 @@
+package data_initializers.mapped;
+
+import model.*;
+import utils.FileFingerprint;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static model.Constants.DEFAULT_FILE_NAME;
+
+/**
+ * DataManager for loading and saving using a memory-mapped file <br>
+ *
+ * Every score record has a fixed width, so that a page of scores can be read directly from its offset without
+ * reading the rest of the file. The file is made of : <br>
+ * - a header : magic number, version, number of players, number of scores, used size and capacity of the players
+ *   section <br>
+ * - the players : length and name (UTF-8) of each player, followed by the free space of the section <br>
+ * - the scores : player index, epoch day, duration in milliseconds, height, width and error ratio of each score <br>
+ * The new scores are appended at the end of the file and the new players in the free space of the players section,
+ * then the header is updated : a crash while appending leaves the file as it was before. The file is only written
+ * again when all the players are saved, or when the players section is full (its capacity being doubled). <br>
+ * Note : a file is limited to 2GB, the maximal size of a single mapping
+ *
+ * @author lturpinat
+ */
+public class MappedDataManager implements RandomAccessDataManager {
+
+    /**
+     * Default file extension for saving and loading
+     */
+    private final String FILE_EXTENSION = "dat";
+    private final File file;
+
+    private static final int MAGIC = 0x4D454D49;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int SCORE_RECORD_SIZE = 36;
+
+    /**
+     * Smallest capacity of the players section, in bytes
+     */
+    private static final int MINIMAL_PLAYERS_CAPACITY = 4096;
+
+    private final static Logger LOGGER = Logger.getLogger(MappedDataManager.class.getName());
+
+    /**
+     * Current mapping of the file, mapped again when the file changes
+     */
+    private Mapping mapping;
+
+    /**
+     * Construct a MappedDataManager using a default file for saving data <br>
+     * The file corresponds to "DEFAULT_FILE_NAME.FILE_EXTENSION" @see {@link Constants}
+     */
+    public MappedDataManager(){
+        file = new File(String.join(".", DEFAULT_FILE_NAME, FILE_EXTENSION));
+    }
+
+    /**
+     * Construct a MappedDataManager which will load and save using {@code file}
+     * @param file file where to load and save data
+     */
+    public MappedDataManager(File file){
+        this.file = file;
+    }
+
+    /**
+     * Load all the players from the mapped file
+     * @return players loaded
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    @Override
+    public List<Player> loadPlayers() throws DataLoadingException {
+        Mapping mapping = getMapping();
+
+        if(mapping == null)
+            return new ArrayList<>();
+
+        List<Player> players = new ArrayList<>(mapping.playersCount);
+
+        for(int i = 0; i < mapping.playersCount; i++)
+            players.add(new Player(mapping.getPlayerName(i)));
+
+        //The scores are read in the order they were recorded, whatever their player
+        for(int i = 0; i < mapping.scoresCount; i++)
+            players.get(mapping.getPlayerIndex(i)).getScores().add(mapping.readScore(i));
+
+        return players;
+    }
+
+    @Override
+    public int getScoresCount() throws DataLoadingException {
+        Mapping mapping = getMapping();
+
+        return mapping == null ? 0 : mapping.scoresCount;
+    }
+
+    /**
+     * Get the scores of the mapped file, read directly from the mapping <br>
+     * Note : the store keeps reading the scores saved when it was taken, even if new scores are appended meanwhile
+     * @return the scores of the file, empty if it doesn't exist
+     * @throws DataLoadingException if the file cannot be mapped or isn't a valid file
+     */
+    @Override
+    public ScoresStore getScoresStore() throws DataLoadingException {
+        Mapping mapping = getMapping();
+
+        return mapping == null ? ScoresTable.of(new ArrayList<>()) : mapping;
+    }
+
+    /**
+     * Save the players in the mapped file layout <br>
+     * Note : the players are written (and synced) in a temporary file first, so that a crash never leaves a partial file
+     * @param players players to save
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    @Override
+    public synchronized void savePlayers(List<Player> players) throws DataLoadingException {
+        int playersCount = players.size();
+        byte[][] names = new byte[playersCount][];
+        long scoresCount = players.stream().mapToLong(player -> player.getScores().size()).sum();
+
+        for(int i = 0; i < playersCount; i++)
+            names[i] = players.get(i).getName().getBytes(StandardCharsets.UTF_8);
+
+        long playersSize = Arrays.stream(names).mapToLong(name -> 4 + name.length).sum();
+
+        //Room is left for as many new players
+        long playersCapacity = Math.max(MINIMAL_PLAYERS_CAPACITY, 2 * playersSize);
+
+        if(HEADER_SIZE + playersCapacity + scoresCount * SCORE_RECORD_SIZE > Integer.MAX_VALUE)
+            throw new DataLoadingException("Too many scores to be saved in a mapped file!");
+
+        writeFile(output -> {
+            writeHeader(output, playersCount, (int) scoresCount, (int) playersSize, (int) playersCapacity);
+
+            for(byte[] name : names)
+                writePlayerEntry(output, name);
+
+            writeFreeSpace(output, playersCapacity - playersSize);
+
+            for(int i = 0; i < playersCount; i++){
+                for(Score score : players.get(i).getScores())
+                    writeScoreRecord(output, i, score);
+            }
+        });
+    }
+
+    /**
+     * Append the new scores to the mapped file, without loading the players <br>
+     * The new players are added in the free space of the players section and the scores at the end of the file. Both
+     * are synced before the header counts them, so that a crash never leaves a partial record in the file. <br>
+     * Note : if the players section is full, the file is written again with a larger section first
+     * @param newScores players holding only their new scores
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    @Override
+    public synchronized void recordScores(List<Player> newScores) throws DataLoadingException {
+        Mapping mapping = getMapping();
+
+        if(mapping == null){
+            savePlayers(new ArrayList<>());
+            mapping = getMapping();
+        }
+
+        //Index of the player of each new score, the new players being indexed after the saved ones
+        Map<String, Integer> addedPlayers = new LinkedHashMap<>();
+        ByteArrayOutputStream addedNames = new ByteArrayOutputStream();
+        ByteArrayOutputStream addedScores = new ByteArrayOutputStream();
+        int addedScoresCount = 0;
+
+        try {
+            DataOutputStream namesOutput = new DataOutputStream(addedNames);
+            DataOutputStream scoresOutput = new DataOutputStream(addedScores);
+
+            for(Player player : newScores){
+                Integer playerIndex = mapping.findPlayer(player.getName());
+
+                if(playerIndex == null){
+                    playerIndex = addedPlayers.get(player.getName());
+
+                    if(playerIndex == null){
+                        playerIndex = mapping.playersCount + addedPlayers.size();
+
+                        addedPlayers.put(player.getName(), playerIndex);
+                        writePlayerEntry(namesOutput, player.getName().getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+
+                for(Score score : player.getScores()){
+                    writeScoreRecord(scoresOutput, playerIndex, score);
+                    addedScoresCount++;
+                }
+            }
+        } catch (IOException e) {
+            throw new DataLoadingException("Cannot encode the scores for the mapped data file!", e);
+        }
+
+        if(mapping.playersSize + addedNames.size() > mapping.playersCapacity)
+            mapping = growPlayersSection(mapping, mapping.playersSize + addedNames.size());
+
+        long scoresEnd = mapping.scoresOffset + (long) (mapping.scoresCount + addedScoresCount) * SCORE_RECORD_SIZE;
+
+        if(scoresEnd > Integer.MAX_VALUE)
+            throw new DataLoadingException("Too many scores to be saved in a mapped file!");
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)){
+            //The records are written after the ones counted by the header, over what a crash may have left there
+            write(channel, ByteBuffer.wrap(addedNames.toByteArray()), HEADER_SIZE + mapping.playersSize);
+            write(channel, ByteBuffer.wrap(addedScores.toByteArray()), mapping.scoresOffset + (long) mapping.scoresCount * SCORE_RECORD_SIZE);
+            channel.force(false);
+
+            //Then they are counted
+            ByteBuffer counts = ByteBuffer.allocate(12);
+            counts.putInt(mapping.playersCount + addedPlayers.size());
+            counts.putInt(mapping.scoresCount + addedScoresCount);
+            counts.putInt(mapping.playersSize + addedNames.size());
+            counts.flip();
+
+            write(channel, counts, 8);
+            channel.force(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DataLoadingException("Cannot append the scores to the mapped data file!", e);
+        }
+
+        LOGGER.log(Level.FINE, addedScoresCount + " score(s) appended to " + file + ".");
+    }
+
+    @Override
+    public boolean appendsScores() {
+        return true;
+    }
+
+    /**
+     * Write the file again with a larger players section, the players and the scores being copied as they are
+     * @param mapping current mapping of the file
+     * @param playersSize size the players section must be able to hold
+     * @return the mapping of the new file
+     * @throws DataLoadingException if the file cannot be written
+     */
+    private Mapping growPlayersSection(Mapping mapping, long playersSize) throws DataLoadingException {
+        long playersCapacity = Math.max(2L * mapping.playersCapacity, playersSize);
+
+        if(HEADER_SIZE + playersCapacity + (long) mapping.scoresCount * SCORE_RECORD_SIZE > Integer.MAX_VALUE)
+            throw new DataLoadingException("Too many scores to be saved in a mapped file!");
+
+        LOGGER.log(Level.INFO, "The players section of " + file + " is full, it is enlarged to " + playersCapacity + " bytes.");
+
+        writeFile(output -> {
+            writeHeader(output, mapping.playersCount, mapping.scoresCount, mapping.playersSize, (int) playersCapacity);
+
+            mapping.copyTo(output, HEADER_SIZE, mapping.playersSize);
+            writeFreeSpace(output, playersCapacity - mapping.playersSize);
+            mapping.copyTo(output, mapping.scoresOffset, mapping.scoresCount * SCORE_RECORD_SIZE);
+        });
+
+        return getMapping();
+    }
+
+    private static void writeHeader(DataOutput output, int playersCount, int scoresCount, int playersSize, int playersCapacity) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(playersCount);
+        output.writeInt(scoresCount);
+        output.writeInt(playersSize);
+        output.writeInt(playersCapacity);
+    }
+
+    private static void writePlayerEntry(DataOutput output, byte[] name) throws IOException {
+        output.writeInt(name.length);
+        output.write(name);
+    }
+
+    private static void writeFreeSpace(DataOutput output, long size) throws IOException {
+        byte[] zeros = new byte[(int) Math.min(size, 64 * 1024)];
+
+        for(long written = 0; written < size; written += zeros.length)
+            output.write(zeros, 0, (int) Math.min(zeros.length, size - written));
+    }
+
+    private static void writeScoreRecord(DataOutput output, int playerIndex, Score score) throws IOException {
+        output.writeInt(playerIndex);
+        output.writeLong(score.getDate().toEpochDay());
+        output.writeLong(score.getDuration().toMillis());
+        output.writeInt(score.getBoardConfiguration().getHeight());
+        output.writeInt(score.getBoardConfiguration().getWidth());
+        output.writeDouble(score.getErrorRation());
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                break;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Replace the file by a new content <br>
+     * The content is written (and synced) in a temporary file first, so that a crash never leaves a partial file. <br>
+     * Note : the current mapping is dropped before the file is replaced, so that it is mapped again from the new file
+     * @param content writer of the content of the file
+     * @throws DataLoadingException if the file cannot be written
+     */
+    private void writeFile(FileContent content) throws DataLoadingException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        try {
+            try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)){
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput, 64 * 1024));
+
+                content.write(output);
+
+                output.flush();
+
+                //Written on the disk before replacing the file
+                fileOutput.getChannel().force(false);
+            }
+
+            mapping = null;
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DataLoadingException("Cannot save data with mapped data file!", e);
+        }
+    }
+
+    /**
+     * Content of the mapped file, written by {@link #writeFile(FileContent)}
+     */
+    private interface FileContent {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    /**
+     * Get the mapping of the file, mapping it again if it has changed since it was mapped <br>
+     * Note : once scores are appended, only the new players are read again
+     * @return the mapping or null if the file doesn't exist
+     * @throws DataLoadingException if the file cannot be mapped or isn't a valid file
+     */
+    private synchronized Mapping getMapping() throws DataLoadingException {
+        try {
+            FileFingerprint fingerprint = FileFingerprint.of(file);
+
+            if(fingerprint == null){
+                LOGGER.log(Level.WARNING, "Couldn't find " + file + " file. Abort file loading! Database will be populated with empty data.");
+                mapping = null;
+                return null;
+            }
+
+            if(mapping != null && mapping.fingerprint.equals(fingerprint))
+                return mapping;
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+                if(channel.size() < HEADER_SIZE || read(channel, header, 0).getInt(0) != MAGIC)
+                    throw new DataLoadingException("Not a mapped data file!");
+
+                if(header.getInt(4) != VERSION)
+                    throw new DataLoadingException("Unsupported mapped data file version " + header.getInt(4) + "!");
+
+                int playersCount = header.getInt(8), scoresCount = header.getInt(12);
+                int playersSize = header.getInt(16), playersCapacity = header.getInt(20);
+
+                //Only the part counted by the header is mapped, a crash while appending possibly leaving more
+                long size = HEADER_SIZE + (long) playersCapacity + (long) scoresCount * SCORE_RECORD_SIZE;
+
+                if(playersCount < 0 || scoresCount < 0 || playersSize < 0 || playersCapacity < playersSize || size > channel.size())
+                    throw new DataLoadingException("The mapped data file is corrupted!");
+
+                if(size > Integer.MAX_VALUE)
+                    throw new DataLoadingException("The mapped data file is too large!");
+
+                mapping = new Mapping(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), fingerprint,
+                        playersCount, scoresCount, playersSize, playersCapacity, mapping);
+
+                return mapping;
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            mapping = null;
+            throw new DataLoadingException("Cannot load data from mapped data file!", e);
+        }
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public String toString(){
+        return "Mapped";
+    }
+
+    /**
+     * Mapped file as it was when it was mapped, along with the offsets of its sections <br>
+     * The names of the players are decoded once : a file mapped again after an append shares them with its
+     * previous mapping, only the new players being decoded. <br>
+     * Note : only absolute reads are made on the buffer, so that it can be shared between threads
+     */
+    private static final class Mapping implements ScoresStore {
+        private final MappedByteBuffer buffer;
+        private final FileFingerprint fingerprint;
+
+        private final int playersCount, scoresCount;
+        private final int playersSize, playersCapacity, scoresOffset;
+
+        /**
+         * Names of the players, by index, and indexes of the players, by name <br>
+         * Note : both can be shared with the next mappings, which only add their new players to them
+         */
+        private final String[] names;
+        private final Map<String, Integer> playerIndexes;
+
+        private Mapping(MappedByteBuffer buffer, FileFingerprint fingerprint, int playersCount, int scoresCount,
+                        int playersSize, int playersCapacity, Mapping previous) {
+            this.buffer = buffer;
+            this.fingerprint = fingerprint;
+            this.playersCount = playersCount;
+            this.scoresCount = scoresCount;
+            this.playersSize = playersSize;
+            this.playersCapacity = playersCapacity;
+
+            scoresOffset = HEADER_SIZE + playersCapacity;
+
+            //The players saved in the previous mapping haven't moved if the file has only been appended since
+            boolean appended = previous != null && previous.fingerprint.isSameFile(fingerprint)
+                    && previous.playersCapacity == playersCapacity && previous.playersCount <= playersCount;
+
+            int knownPlayers = appended ? previous.playersCount : 0;
+            int position = HEADER_SIZE + (appended ? previous.playersSize : 0);
+
+            if(!appended)
+                names = new String[Math.max(16, playersCount)];
+            else if(previous.names.length < playersCount)
+                names = Arrays.copyOf(previous.names, Math.max(playersCount, 2 * previous.names.length));
+            else
+                names = previous.names;
+
+            playerIndexes = appended ? previous.playerIndexes : new HashMap<>();
+
+            for(int i = knownPlayers; i < playersCount; i++){
+                int length = buffer.getInt(position);
+
+                ByteBuffer name = buffer.duplicate();
+                name.position(position + 4);
+                name.limit(position + 4 + length);
+
+                names[i] = StandardCharsets.UTF_8.decode(name).toString();
+                playerIndexes.putIfAbsent(names[i], i);
+
+                position += 4 + length;
+            }
+        }
+
+        //<editor-fold desc="ScoresStore">
+        @Override
+        public int getScoresCount() { return scoresCount; }
+
+        @Override
+        public int getPlayersCount() { return playersCount; }
+
+        @Override
+        public String getPlayerName(int playerIndex) { return names[playerIndex]; }
+
+        @Override
+        public int getPlayerIndex(int scoreIndex) { return buffer.getInt(scoresOffset + scoreIndex * SCORE_RECORD_SIZE); }
+
+        @Override
+        public long getEpochDay(int scoreIndex) { return buffer.getLong(scoresOffset + scoreIndex * SCORE_RECORD_SIZE + 4); }
+
+        @Override
+        public long getDurationMillis(int scoreIndex) { return buffer.getLong(scoresOffset + scoreIndex * SCORE_RECORD_SIZE + 12); }
+
+        @Override
+        public int getHeight(int scoreIndex) { return buffer.getInt(scoresOffset + scoreIndex * SCORE_RECORD_SIZE + 20); }
+
+        @Override
+        public int getWidth(int scoreIndex) { return buffer.getInt(scoresOffset + scoreIndex * SCORE_RECORD_SIZE + 24); }
+
+        @Override
+        public double getErrorRatio(int scoreIndex) { return buffer.getDouble(scoresOffset + scoreIndex * SCORE_RECORD_SIZE + 28); }
+        //</editor-fold>
+
+        /**
+         * Look for a player by name
+         * @param name name of the player
+         * @return index of the player or null if not found
+         */
+        private Integer findPlayer(String name) {
+            Integer playerIndex = playerIndexes.get(name);
+
+            //The index may already hold the players appended after this mapping
+            return playerIndex == null || playerIndex >= playersCount ? null : playerIndex;
+        }
+
+        /**
+         * Copy a part of the file as it is
+         * @param output where to copy it
+         * @param offset offset of the part in the file
+         * @param length length of the part
+         * @throws IOException if the part cannot be written
+         */
+        private void copyTo(DataOutputStream output, int offset, int length) throws IOException {
+            ByteBuffer part = buffer.duplicate();
+            part.position(offset);
+            part.limit(offset + length);
+
+            byte[] chunk = new byte[Math.max(1, Math.min(length, 64 * 1024))];
+
+            while(part.hasRemaining()){
+                int size = Math.min(chunk.length, part.remaining());
+                part.get(chunk, 0, size);
+                output.write(chunk, 0, size);
+            }
+        }
+
+        private Score readScore(int scoreIndex) {
+            return new Score(LocalDate.ofEpochDay(getEpochDay(scoreIndex)), Duration.ofMillis(getDurationMillis(scoreIndex)),
+                    new BoardConfiguration(getHeight(scoreIndex), getWidth(scoreIndex)), getErrorRatio(scoreIndex));
+        }
+    }
+}
@@ -6,8 +6,10 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
-import java.io.File;
-import java.io.FileNotFoundException;
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -17,7 +19,10 @@ import static model.Constants.DEFAULT_FILE_NAME;
 
 
 /**
- * DataManager for loading and saving using XML serialization
+ * DataManager for loading and saving using XML serialization <br>
+ *
+ * By default, the players are streamed (@see {@link XMLStreamCodec}). The JAXB mode is kept for compatibility,
+ * both modes reading and writing the same files.
  *
  * @author lturpinat
  */
@@ -26,17 +31,25 @@ public class XMLDataManager implements DataManager {
     /**
      * Default file extension for saving and loading
      */
-    private final String FILE_EXTENSION = "xml";
+    private static final String FILE_EXTENSION = "xml";
     private final File file;
 
+    private final boolean streaming;
+
     private final static Logger LOGGER = Logger.getLogger(XMLDataManager.class.getName());
 
+    /**
+     * JAXB context of the compatibility mode, created on first use as it is expensive to create <br>
+     * Note : a JAXBContext is thread-safe, unlike the marshallers it creates
+     */
+    private static JAXBContext jaxbContext;
+
     /**
      * Construct a XMLDataManager using a default file for saving binary data <br>
      * The file corresponds to "DEFAULT_FILE_NAME.FILE_EXTENSION" @see {@link Constants}
      */
     public XMLDataManager(){
-        file = new File(String.join(".", DEFAULT_FILE_NAME, FILE_EXTENSION)) ;
+        this(new File(String.join(".", DEFAULT_FILE_NAME, FILE_EXTENSION)));
     }
 
     /**
@@ -44,7 +57,24 @@ public class XMLDataManager implements DataManager {
      * @param file file where to load and save binary data
      */
     public XMLDataManager(File file){
+        this(file, true);
+    }
+
+    /**
+     * Construct a XMLDataManager which will load and save using {@code file}
+     * @param file file where to load and save binary data
+     * @param streaming true to stream the players (StAX), false to use JAXB
+     */
+    public XMLDataManager(File file, boolean streaming){
         this.file = file;
+        this.streaming = streaming;
+    }
+
+    private static synchronized JAXBContext getJAXBContext() throws JAXBException {
+        if(jaxbContext == null)
+            jaxbContext = JAXBContext.newInstance(XMLRoot.class);
+
+        return jaxbContext;
     }
 
     /**
@@ -54,10 +84,12 @@ public class XMLDataManager implements DataManager {
      */
     @Override
     public List<Player> loadPlayers() throws DataLoadingException {
+        if(streaming)
+            return streamPlayers();
+
         try {
 
-            JAXBContext context = JAXBContext.newInstance(XMLRoot.class);
-            Unmarshaller um = context.createUnmarshaller();
+            Unmarshaller um = getJAXBContext().createUnmarshaller();
 
             XMLRoot extractedXMLRoot = (XMLRoot) um.unmarshal(file);
 
@@ -81,9 +113,13 @@ public class XMLDataManager implements DataManager {
      */
     @Override
     public void savePlayers(List<Player> players) throws DataLoadingException {
+        if(streaming){
+            streamPlayers(players);
+            return;
+        }
+
         try {
-            JAXBContext context = JAXBContext.newInstance(XMLRoot.class);
-            Marshaller m = context.createMarshaller();
+            Marshaller m = getJAXBContext().createMarshaller();
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 
             XMLRoot root = new XMLRoot();
@@ -97,6 +133,56 @@ public class XMLDataManager implements DataManager {
         }
     }
 
+    /**
+     * Read the players one element at a time (@see {@link XMLStreamCodec})
+     * @return players loaded
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    private List<Player> streamPlayers() throws DataLoadingException {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(file))){
+            return XMLStreamCodec.read(input);
+        }
+        catch (FileNotFoundException e) {
+            //In case the file doesn't exist, an empty list of players is returned
+            LOGGER.log(Level.WARNING, "Couldn't find " + DEFAULT_FILE_NAME + "." + FILE_EXTENSION + " file. Abort file loading! Database will be populated with empty data.");
+            return new ArrayList<>();
+        }
+        catch (IOException | XMLStreamException e) {
+            throw new DataLoadingException("Cannot load data from xml data file!", e);
+        }
+    }
+
+    /**
+     * Write the players one element at a time (@see {@link XMLStreamCodec}) <br>
+     * Note : the players are written (and synced) in a temporary file first, so that a crash never leaves a partial file
+     * @param players players to save
+     * @throws DataLoadingException if anything goes wrong while saving data
+     */
+    private void streamPlayers(List<Player> players) throws DataLoadingException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        try {
+            try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)){
+                OutputStream output = new BufferedOutputStream(fileOutput);
+
+                XMLStreamCodec.write(players, output);
+                output.flush();
+
+                //Written on the disk before replacing the file
+                fileOutput.getChannel().force(false);
+            }
+
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | XMLStreamException e) {
+            throw new DataLoadingException("Cannot save data with xml data file!", e);
+        }
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
     @Override
     public String toString(){
         return "XML";
@@ -0,0 +1,194 @@
+package data_initializers.xml;
+
+import javafx.collections.FXCollections;
+import model.BoardConfiguration;
+import model.Player;
+import model.Score;
+
+import javax.xml.stream.*;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming (StAX) reader and writer of the players <br>
+ *
+ * The elements are the same as the ones of {@link XMLRoot}, {@link XMLPlayer} and {@link XMLScore}, so that both
+ * the streaming and the JAXB modes of {@link XMLDataManager} read the same files. <br>
+ * Players and scores are read and written one element at a time, without building any intermediate tree.
+ *
+ * @author lturpinat
+ */
+final class XMLStreamCodec {
+
+    private static final String ROOT_ELEMENT = "players";
+    private static final String PLAYER_ELEMENT = "player";
+    private static final String NAME_ELEMENT = "name";
+    private static final String SCORES_ELEMENT = "scores";
+    private static final String SCORE_ELEMENT = "score";
+    private static final String DATE_ELEMENT = "date";
+    private static final String DURATION_ELEMENT = "duration";
+    private static final String HEIGHT_ELEMENT = "height";
+    private static final String WIDTH_ELEMENT = "width";
+    private static final String ERROR_RATIO_ELEMENT = "errorRatio";
+
+    private static final String INDENT = "    ";
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        //The players file never needs a DTD nor external entities
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private XMLStreamCodec(){}
+
+    /**
+     * Read the players
+     * @param inputStream source of the players, which is not closed
+     * @return players read
+     * @throws XMLStreamException if the XML is malformed
+     */
+    static List<Player> read(InputStream inputStream) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+        List<Player> players = new ArrayList<>();
+
+        String name = null;
+        List<Score> scores = null;
+
+        long date = 0, duration = 0;
+        int height = 0, width = 0;
+        double errorRatio = 0;
+
+        try {
+            while(reader.hasNext()){
+                int event = reader.next();
+
+                if(event == XMLStreamConstants.START_ELEMENT){
+                    switch (reader.getLocalName()){
+                        case PLAYER_ELEMENT:
+                            name = null;
+                            scores = new ArrayList<>();
+                            break;
+                        case NAME_ELEMENT:
+                            name = reader.getElementText();
+                            break;
+                        case SCORE_ELEMENT:
+                            //A missing element takes its default value, like with JAXB, not the one of the previous score
+                            date = duration = 0;
+                            height = width = 0;
+                            errorRatio = 0;
+                            break;
+                        case DATE_ELEMENT:
+                            date = Long.parseLong(reader.getElementText().trim());
+                            break;
+                        case DURATION_ELEMENT:
+                            duration = Long.parseLong(reader.getElementText().trim());
+                            break;
+                        case HEIGHT_ELEMENT:
+                            height = Integer.parseInt(reader.getElementText().trim());
+                            break;
+                        case WIDTH_ELEMENT:
+                            width = Integer.parseInt(reader.getElementText().trim());
+                            break;
+                        case ERROR_RATIO_ELEMENT:
+                            errorRatio = Double.parseDouble(reader.getElementText().trim());
+                            break;
+                    }
+                }
+                else if(event == XMLStreamConstants.END_ELEMENT){
+                    switch (reader.getLocalName()){
+                        case SCORE_ELEMENT:
+                            if(scores != null)
+                                scores.add(new Score(LocalDate.ofEpochDay(date), Duration.ofMillis(duration),
+                                        new BoardConfiguration(height, width), errorRatio));
+                            break;
+                        case PLAYER_ELEMENT:
+                            if(scores != null)
+                                players.add(new Player(name, FXCollections.observableArrayList(scores)));
+                            scores = null;
+                            break;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new XMLStreamException("Invalid value: " + e.getMessage(), reader.getLocation(), e);
+        } finally {
+            reader.close();
+        }
+
+        return players;
+    }
+
+    /**
+     * Write the players, indented like the files written by JAXB
+     * @param players players to write
+     * @param outputStream destination of the players, which is not closed
+     * @throws XMLStreamException if writing fails
+     */
+    static void write(List<Player> players, OutputStream outputStream) throws XMLStreamException {
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+
+        try {
+            writer.writeStartDocument("UTF-8", "1.0");
+            newLine(writer, 0);
+            writer.writeStartElement(ROOT_ELEMENT);
+
+            for(Player player : players){
+                newLine(writer, 1);
+                writer.writeStartElement(PLAYER_ELEMENT);
+
+                writeElement(writer, 2, NAME_ELEMENT, player.getName());
+
+                newLine(writer, 2);
+                writer.writeStartElement(SCORES_ELEMENT);
+
+                for(Score score : player.getScores()){
+                    newLine(writer, 3);
+                    writer.writeStartElement(SCORE_ELEMENT);
+
+                    writeElement(writer, 4, DATE_ELEMENT, Long.toString(score.getDate().toEpochDay()));
+                    writeElement(writer, 4, DURATION_ELEMENT, Long.toString(score.getDuration().toMillis()));
+                    writeElement(writer, 4, HEIGHT_ELEMENT, Integer.toString(score.getBoardConfiguration().getHeight()));
+                    writeElement(writer, 4, WIDTH_ELEMENT, Integer.toString(score.getBoardConfiguration().getWidth()));
+                    writeElement(writer, 4, ERROR_RATIO_ELEMENT, Double.toString(score.getErrorRation()));
+
+                    newLine(writer, 3);
+                    writer.writeEndElement();
+                }
+
+                newLine(writer, 2);
+                writer.writeEndElement();
+
+                newLine(writer, 1);
+                writer.writeEndElement();
+            }
+
+            newLine(writer, 0);
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, int depth, String element, String value) throws XMLStreamException {
+        newLine(writer, depth);
+        writer.writeStartElement(element);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private static void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters("\n");
+
+        for(int i = 0; i < depth; i++)
+            writer.writeCharacters(INDENT);
+    }
+}
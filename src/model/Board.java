@@ -1,23 +1,38 @@
 package model;
 
+import javafx.application.Platform;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ListProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
+import utils.ImageCache;
 
+import java.net.URI;
+import java.security.InvalidParameterException;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Board model object <br>
  *
- * Manage a game
+ * Manage a game <br>
+ * The rules are played by a compact {@link BoardState}; the JavaFX {@link Card}s are only a view of it, built
+ * the first time {@link #getCards()} is called.
  *
  * @author lturpinat
  */
@@ -31,12 +46,48 @@ public class Board {
     private final ObservableList<Card> cardsObs = FXCollections.observableArrayList();
     private final ListProperty<Card> cards = new SimpleListProperty<>(cardsObs);
 
+    /**
+     * Listeners of the cards, only notified once the JavaFX cards are built (@see getCards())
+     */
+    private final List<CardsListener> cardsListeners = new ArrayList<>();
+
     private final ObservableList<Card> selectedCardsObs = FXCollections.observableArrayList();
     private final ListProperty<Card> selectedCards = new SimpleListProperty<>(selectedCardsObs);
 
+    /**
+     * Whether or not the JavaFX cards have been requested
+     */
+    private boolean cardsAdapted;
+
+    /**
+     * Note : the state may be generated by a background thread, see {@link #prepare()}
+     */
+    private volatile BoardState state;
+
+    /**
+     * Image of each card id
+     */
+    private Image[] cardsImages;
+
+    private CompletableFuture<Void> preparation;
+
+    private final ReadOnlyDoubleWrapper preparationProgress = new ReadOnlyDoubleWrapper();
+
     private final static Logger LOGGER = Logger.getLogger(Board.class.getName());
 
-    private final Image frontCardImage, backgroundImage;
+    private final ObjectProperty<Image> frontCardImage = new SimpleObjectProperty<>();
+
+    private final Image backgroundImage;
+
+    /**
+     * Size at which the cards images are decoded (@see {@link ImageCache#sizeTier(double)})
+     */
+    private volatile int cardsImagesSize = ImageCache.ORIGINAL_SIZE;
+
+    /**
+     * Largest size at which the cards images have been requested since the board was prepared
+     */
+    private int requestedCardsImagesSize = ImageCache.ORIGINAL_SIZE;
 
     private boolean running;
 
@@ -48,28 +99,43 @@ public class Board {
      * @param sizeW width of the board
      * @param theme theme for the cards
      * @param occurrence occurrences of cards
+     * @throws InvalidParameterException if the grid is out of the {@link GridLimits} or the theme cannot fill it
      */
-    public Board(int sizeH, int sizeW, Theme theme, int occurrence) {
+    public Board(int sizeH, int sizeW, Theme theme, int occurrence) throws InvalidParameterException {
+        GridLimits.checkGrid(sizeH, sizeW);
+
         boardConfiguration = new BoardConfiguration(sizeH, sizeW);
         this.theme = theme;
 
-        frontCardImage = new Image(theme.getHiddenCard().toString());
-        backgroundImage = new Image(theme.getBackground().toString());
+        if(!theme.canPlay(sizeH, sizeW, occurrence))
+            throw new InvalidParameterException("The theme " + theme + " cannot fill a " + sizeH + "x" + sizeW + " grid with " + occurrence + " occurrences !");
+
+        //Images are shared with the other boards using the same theme
+        //Note : the hidden card is decoded along with the cards, at their displayed size
+        backgroundImage = ImageCache.getInstance().getImage(theme.getBackground());
 
         setErrorsCounter(0);
         cardsOccurrences = occurrence;
     }
 
     /**
-     * Start the game
+     * Start the game <br>
+     * Note : if the board hasn't been prepared yet, it waits for the preparation, see {@link #prepare()}
+     * @throws IllegalStateException if it would wait on the JavaFX thread for the preparation, which ends on that thread
      */
     public void startGame(){
         if(isRunning())
             return;
 
-        //If the generation hasn't been called before startGame()
-        if(getCards().isEmpty())
-            buildCards();
+        if(!isPrepared() && Platform.isFxApplicationThread())
+            throw new IllegalStateException("The board must be prepared before the game is started on the JavaFX thread !");
+
+        //If the preparation hasn't been called before startGame(), it is done now
+        prepare().join();
+
+        //The view has been requested before the cards were generated
+        if(cardsAdapted && cardsObs.isEmpty())
+            adaptCards();
 
         running = true;
 
@@ -78,6 +144,91 @@ public class Board {
         LOGGER.log(Level.INFO, "Game started!");
     }
 
+    /**
+     * Decode the images needed by the board on background threads, then generate the cards on the JavaFX thread <br>
+     * Note : it can be called while the game is set up, so that {@link #startGame()} returns immediately
+     * @return a future completed once the board is ready to start, or failed if an image couldn't be decoded
+     */
+    public synchronized CompletableFuture<Void> prepare(){
+        if(preparation == null){
+            requestedCardsImagesSize = cardsImagesSize;
+
+            preparation = ImageCache.getInstance()
+                    .preload(getNeededImages(), cardsImagesSize, cardsImagesSize, progress -> Platform.runLater(() -> preparationProgress.set(progress)))
+                    .thenRunAsync(this::buildCards, Platform::runLater);
+        }
+
+        return preparation;
+    }
+
+    /**
+     * Adapt the size at which the cards images are decoded to the size they are displayed at <br>
+     * Before the board is prepared, the size is simply chosen. Afterwards, the images are only decoded again
+     * (in the background) when they are displayed larger than their decoded size, and swapped on the JavaFX thread.
+     * @param displayedWidth width of the displayed cards, in pixels
+     * @param displayedHeight height of the displayed cards, in pixels
+     */
+    public synchronized void fitCardImages(double displayedWidth, double displayedHeight){
+        int size = ImageCache.sizeTier(Math.max(displayedWidth, displayedHeight));
+
+        if(preparation == null){
+            cardsImagesSize = size;
+            return;
+        }
+
+        if(!ImageCache.isLargerTier(size, requestedCardsImagesSize))
+            return;
+
+        requestedCardsImagesSize = size;
+
+        LOGGER.log(Level.INFO, "Decoding cards at " + (size == ImageCache.ORIGINAL_SIZE ? "original size" : size + "px") + "...");
+
+        preparation
+                .thenCompose(ignored -> ImageCache.getInstance().preload(getNeededImages(), size, size, null))
+                .thenRun(() -> Platform.runLater(() -> applyCardsImagesSize(size)));
+    }
+
+    /**
+     * Replace the cards images by the ones decoded at a new size
+     * @param size size of the new images
+     */
+    private synchronized void applyCardsImagesSize(int size){
+        //A larger size has been requested meanwhile
+        if(size != requestedCardsImagesSize)
+            return;
+
+        cardsImagesSize = size;
+
+        for (int i = 0 ; i < cardsImages.length ; i++)
+            cardsImages[i] = ImageCache.getInstance().getImage(theme.getCards().get(i), size, size);
+
+        if(cardsAdapted)
+            for(Card card : cardsObs)
+                card.setImageFile(cardsImages[card.getId()]);
+
+        //Set last so that the listeners see the new images of the cards
+        frontCardImage.set(ImageCache.getInstance().getImage(theme.getHiddenCard(), size, size));
+    }
+
+    /**
+     * Get the images the board needs : the faces of the cards used and the hidden card
+     * @return locations of the images
+     */
+    private List<URI> getNeededImages(){
+        List<URI> neededImages = new ArrayList<>(theme.getCards().subList(0, getBoardConfiguration().getRequiredCards() / getCardsOccurrences()));
+        neededImages.add(theme.getHiddenCard());
+
+        return neededImages;
+    }
+
+    /**
+     * Whether or not the board is ready to start without waiting
+     * @return true if prepared
+     */
+    public boolean isPrepared(){
+        return state != null;
+    }
+
 
     /**
      * Stop the game
@@ -91,79 +242,158 @@ public class Board {
 
     /**
      * Generate the cards randomly according to the number of occurrences and the theme selected <br/>
-     * Note : buildCards() can manually be called in order to generate cards a little bit before starting the game
+     * Note : it is called by {@link #prepare()} on the JavaFX thread once the images are cached, as it sets the
+     * front card image the views are bound to
      */
     private void buildCards() {
         LOGGER.log(Level.INFO, "Building cards...");
 
-        for (int i = 0 ; i < (getBoardConfiguration().getRequiredCards())/getCardsOccurrences() ; i++) {
-            Image image = new Image(theme.getCards().get(i).toString());
+        BoardState builtState = new BoardState(getBoardConfiguration().getRequiredCards(), getCardsOccurrences(), new Random());
 
-            for(int l = 0 ; l < getCardsOccurrences() ; l++)
-                getCards().add(new Card(i, image));
-        }
+        Image[] images = new Image[builtState.getGroupsCount()];
 
-        Collections.shuffle(getCards());
+        for (int i = 0 ; i < images.length ; i++)
+            images[i] = ImageCache.getInstance().getImage(theme.getCards().get(i), cardsImagesSize, cardsImagesSize);
+
+        frontCardImage.set(ImageCache.getInstance().getImage(theme.getHiddenCard(), cardsImagesSize, cardsImagesSize));
+
+        //The state is published last, so that the images are visible to any thread seeing it
+        cardsImages = images;
+        state = builtState;
 
         LOGGER.log(Level.INFO, "Built!");
     }
 
+    /**
+     * Build the JavaFX cards reflecting the state of the board
+     */
+    private void adaptCards() {
+        List<Card> builtCards = new ArrayList<>(state.size());
+
+        for(int slot = 0 ; slot < state.size() ; slot++){
+            Card card = new Card(state.getId(slot), cardsImages[state.getId(slot)], slot);
+            card.setFound(state.isFound(slot));
+
+            builtCards.add(card);
+        }
+
+        //Publish the whole deck at once instead of firing a change per card
+        cardsObs.setAll(builtCards);
+
+        for(int i = 0 ; i < state.getSelectionSize() ; i++)
+            selectedCardsObs.add(builtCards.get(state.getSelectedSlot(i)));
+    }
+
+    /**
+     * Check if a card would be picked, without picking it (eg. to update the view before the pick)
+     * @param card the card the player clicked on
+     * @return false if picking the card would be ignored
+     */
+    public boolean canPick(Card card){
+        return state != null && belongsToBoard(card) && state.canPick(card.getSlot());
+    }
+
     /**
      * Acknowledge that the player has selected a new card
      * @param card the card the player clicked on
+     * @return the outcome of the pick (ignored if the card doesn't belong to this board)
      */
-    public void pickCard(Card card){
-        if(!getCards().contains(card) || card.isFound())
-            return;
+    public BoardState.PickResult pickCard(Card card){
+        if(belongsToBoard(card))
+            return pickCard(card.getSlot());
 
-        //If the same card is selected
-        if(getSelectedCards().stream().anyMatch(x -> x.getUuid().equals(card.getUuid())))
-            return;
+        return BoardState.PickResult.IGNORED;
+    }
 
-        LOGGER.log(Level.INFO, "Card picked : " + card.getId());
+    private boolean belongsToBoard(Card card){
+        //The slot of the card is its identity, as long as the card belongs to this board
+        int slot = card.getSlot();
 
-        getSelectedCards().add(card);
+        return slot >= 0 && slot < cardsObs.size() && cardsObs.get(slot) == card;
+    }
 
-        //All the cards are selected but the combination is wrong
-        if(getSelectedCards().size() == getCardsOccurrences() && !checkCardsCombination()) {
-            increaseErrorsCounterByOne();
-            clearSelection();
-        }
+    /**
+     * Acknowledge that the player has selected a new card
+     * @param slot the slot of the card the player clicked on (from left to right, then top to bottom)
+     * @return the outcome of the pick
+     */
+    public BoardState.PickResult pickCard(int slot){
+        if(state == null)
+            return BoardState.PickResult.IGNORED;
+
+        BoardState.PickResult result = state.pick(slot);
+
+        if(result == BoardState.PickResult.IGNORED)
+            return result;
+
+        LOGGER.log(Level.INFO, "Card picked : " + state.getId(slot));
+
+        //The picked card is displayed on its face, whatever the outcome
+        if(cardsAdapted)
+            fireCardsChanged(CardsChange.REVEALED, Collections.singletonList(getCards().get(slot)));
+
+        switch (result) {
+            case SELECTED:
+                if(cardsAdapted)
+                    getSelectedCards().add(getCards().get(slot));
+                break;
+
+            case MISMATCHED:
+                //All the cards are selected but the combination is wrong
+                setErrorsCounter(state.getErrors());
+
+                if(cardsAdapted){
+                    List<Card> hiddenCards = new ArrayList<>(getSelectedCards());
+                    hiddenCards.add(getCards().get(slot));
+
+                    clearSelection();
+                    fireCardsChanged(CardsChange.HIDDEN, hiddenCards);
+                }
+                break;
 
-        //All the cards are selected and the combination is right
-        if(getSelectedCards().size() == getCardsOccurrences() && checkCardsCombination()) {
-            clearSelection();
-            card.setFound(true);
+            case MATCHED:
+            case COMPLETED:
+                //All the cards are selected and the combination is right
+                clearSelection();
 
-            //Set all cards that has the same id that the picked up card to found
-            getCards().stream().filter(x -> x.getId() == card.getId()).forEach(x -> x.setFound(true));
+                //Set all cards that has the same id that the picked up card to found
+                if(cardsAdapted){
+                    List<Card> foundCards = new ArrayList<>(getCardsOccurrences());
 
-            if (isGameCompleted())
-                stopGame();
+                    for(int i = 0 ; i < getCardsOccurrences() ; i++){
+                        Card foundCard = getCards().get(state.getGroupSlot(state.getId(slot), i));
+                        foundCard.setFound(true);
+                        foundCards.add(foundCard);
+                    }
+
+                    fireCardsChanged(CardsChange.FOUND, foundCards);
+                }
+
+                if(result == BoardState.PickResult.COMPLETED)
+                    stopGame();
+                break;
         }
+
+        return result;
     }
 
     /**
-     * Check if the game is completed (ie. all the cards have been discovered)
-     * @return true if game is completed
+     * Listen to the changes of the cards made by the picks
+     * @param listener listener notified on the JavaFX thread, each time cards are revealed, hidden or found
      */
-    private boolean isGameCompleted(){
-        return getCards().stream().allMatch(Card::isFound);
+    public void addCardsListener(CardsListener listener){
+        cardsListeners.add(listener);
     }
 
-    /**
-     * Check if the combination of cards is correct <br/>
-     * A combination is considered successful if all the cards selected are the same (ie. have the same id)
-     * @see Card
-     * @return true if the combination if successful
-     */
-    private boolean checkCardsCombination(){
-        if(getSelectedCards().isEmpty())
-            return false;
+    public void removeCardsListener(CardsListener listener){
+        cardsListeners.remove(listener);
+    }
 
-        int firstId = getSelectedCards().get(0).getId();
+    private void fireCardsChanged(CardsChange change, List<Card> changedCards){
+        List<Card> unmodifiableCards = Collections.unmodifiableList(changedCards);
 
-        return getSelectedCards().stream().allMatch(x -> x.getId() == firstId);
+        for(CardsListener listener : cardsListeners)
+            listener.cardsChanged(change, unmodifiableCards);
     }
 
     /**
@@ -194,7 +424,7 @@ public class Board {
 
         //Calculation used : nbCards/nbErrors * 1/timeLasted * 1/cardOccurrences
         //double errorRatio = ((getCards().size() / (getErrorsCounter()+1)) / getTimeLasted().getSeconds()) /getCardsOccurrences();
-        double errorRatio = (getCards().size()*getCardsOccurrences()*getErrorsCounter())/getTimeLasted().getSeconds();
+        double errorRatio = (getBoardConfiguration().getRequiredCards()*getCardsOccurrences()*getErrorsCounter())/getTimeLasted().getSeconds();
         Score score = new Score(LocalDate.now(), getTimeLasted(), getBoardConfiguration(), errorRatio);
 
         return score;
@@ -216,7 +446,6 @@ public class Board {
     private void setErrorsCounter(int errorsCounter) {
         this.errorsCounter.set(errorsCounter);
     }
-    private void increaseErrorsCounterByOne() { setErrorsCounter(getErrorsCounter() + 1); }
     public IntegerProperty errorsCounterProperty() {
         return errorsCounter;
     }
@@ -244,10 +473,18 @@ public class Board {
     }
 
     /**
-     * Get the cards used in the grid
+     * Get the cards used in the grid <br>
+     * Note : the cards are a view of the {@link BoardState}, they are only built when requested
      * @return cards of the board
      */
     public ObservableList<Card> getCards() {
+        if(!cardsAdapted){
+            cardsAdapted = true;
+
+            if(state != null)
+                adaptCards();
+        }
+
         return cards.get();
     }
     private void setCards(ObservableList<Card> cards) {
@@ -257,11 +494,42 @@ public class Board {
         return cards;
     }
 
+    /**
+     * Get the progress of the preparation of the board
+     * @return fraction of the images decoded (from 0 to 1), updated on the JavaFX thread
+     */
+    public double getPreparationProgress() {
+        return preparationProgress.get();
+    }
+    public ReadOnlyDoubleProperty preparationProgressProperty() {
+        return preparationProgress.getReadOnlyProperty();
+    }
+
+    /**
+     * Get the compact state of the game
+     * @return state of the game or null if the cards haven't been generated yet
+     */
+    public BoardState getState() {
+        return state;
+    }
+
+    /**
+     * Get the image of a card
+     * @param slot slot of the card
+     * @return image of the card
+     */
+    public Image getCardImage(int slot) {
+        return cardsImages[state.getId(slot)];
+    }
+
     /**
      * Get the hidden face of the cards that is proper to the selected {@link Theme}
      * @return hidden face card image
      */
     public Image getFrontCardImage(){
+        return frontCardImage.get();
+    }
+    public ReadOnlyObjectProperty<Image> frontCardImageProperty(){
         return frontCardImage;
     }
 
@@ -281,4 +549,29 @@ public class Board {
         return running;
     }
     //</editor-fold>
+
+    /**
+     * Changes of the cards made by a pick
+     */
+    public enum CardsChange {
+        /**
+         * The picked card is displayed on its face
+         */
+        REVEALED,
+        /**
+         * The cards of a wrong selection are hidden again (they can be displayed a while before being hidden)
+         */
+        HIDDEN,
+        /**
+         * The cards of a right selection are found, they stay on their face
+         */
+        FOUND
+    }
+
+    /**
+     * Listener of the cards changed by the picks, notified with the changed cards only
+     */
+    public interface CardsListener {
+        void cardsChanged(CardsChange change, List<Card> cards);
+    }
 }
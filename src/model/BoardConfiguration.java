@@ -5,10 +5,10 @@ import javafx.beans.property.SimpleIntegerProperty;
 
 import java.security.InvalidParameterException;
 
-import static model.Constants.*;
-
 /**
- * Contains the dimensions of a board (height, width)
+ * Contains the dimensions of a board (height, width) <br>
+ * Note : the dimensions aren't checked against the {@link GridLimits}, which may have changed since a score was
+ * saved : they are checked when a board is created (@see {@link Board})
  * @see Board
  *
  * @author lturpinat
@@ -27,8 +27,8 @@ public class BoardConfiguration {
     //<editor-fold desc="JavaFX Getters/Setters/Properties">
     public int getHeight() { return height.get(); }
     public void setHeight(int height) throws InvalidParameterException {
-        if(height <= 0 | height > MAXIMAL_GRID_HEIGHT_SIZE)
-            throw new InvalidParameterException("The height of the grid must be : 0 < height <= " + MAXIMAL_GRID_HEIGHT_SIZE +" !");
+        if(height <= 0)
+            throw new InvalidParameterException("The height of the grid must be : 0 < height !");
         this.height.set(height);
     }
     public IntegerProperty heightProperty() {
@@ -39,8 +39,8 @@ public class BoardConfiguration {
         return width.get();
     }
     public void setWidth(int width) throws InvalidParameterException {
-        if(width <= 0 | width > MAXIMAL_GRID_WIDTH_SIZE)
-            throw new InvalidParameterException("The width of the grid must be : 0 < width <= " + MAXIMAL_GRID_WIDTH_SIZE + " !");
+        if(width <= 0)
+            throw new InvalidParameterException("The width of the grid must be : 0 < width !");
         this.width.set(width);
     }
     public IntegerProperty widthProperty() { return width; }
@@ -0,0 +1,289 @@
+package model;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * BoardState <br>
+ *
+ * Compact core of a game, free of any JavaFX object : the cards are only described by their id in an {@code int[]}
+ * and the found cards by a {@link BitSet}, so that large boards and headless simulations stay cheap. <br>
+ * A card is identified by its slot, ie. its position in the grid (from left to right, then top to bottom).
+ * @see Board for the JavaFX layer built on top of it
+ *
+ * @author lturpinat
+ */
+public class BoardState {
+
+    /**
+     * Outcome of a card pick
+     */
+    public enum PickResult {
+        /**
+         * The card cannot be picked (already found, already selected or out of the board)
+         */
+        IGNORED,
+        /**
+         * The card has been added to the selection, which is not complete yet
+         */
+        SELECTED,
+        /**
+         * The selection was complete and the cards were different : an error is counted
+         */
+        MISMATCHED,
+        /**
+         * The selection was complete and all the cards were the same : they are found
+         */
+        MATCHED,
+        /**
+         * The selection was right and it was the last group to find : the game is completed
+         */
+        COMPLETED
+    }
+
+    private final int occurrences;
+
+    /**
+     * Id of the card of each slot
+     */
+    private final int[] ids;
+
+    /**
+     * Slots of the cards grouped by id : the slots of the id {@code i} are stored from {@code i * occurrences}
+     */
+    private final int[] groupsSlots;
+
+    private final BitSet found;
+
+    private final int[] selection;
+    private int selectionSize;
+    private boolean selectionMismatched;
+
+    private int remainingGroups;
+    private int errors;
+
+    /**
+     * Create a shuffled board
+     * @param cardsCount number of cards in the grid
+     * @param occurrences occurrences of each card
+     * @param random source of randomness used to shuffle the cards
+     * @throws IllegalArgumentException if the cards cannot be grouped by {@code occurrences}
+     */
+    public BoardState(int cardsCount, int occurrences, Random random) {
+        this(shuffledIds(cardsCount, occurrences, random), occurrences);
+    }
+
+    /**
+     * Create a board from already placed cards
+     * @param ids id of the card of each slot, each id from 0 to (ids.length / occurrences) - 1 appearing {@code occurrences} times
+     * @param occurrences occurrences of each card
+     * @throws IllegalArgumentException if the ids don't match the occurrences
+     */
+    public BoardState(int[] ids, int occurrences) {
+        if(occurrences <= 0 || ids.length % occurrences != 0)
+            throw new IllegalArgumentException("The cards cannot be grouped by " + occurrences + " !");
+
+        this.occurrences = occurrences;
+        this.ids = ids;
+
+        int groups = ids.length / occurrences;
+        groupsSlots = new int[ids.length];
+        int[] filled = new int[groups];
+
+        for(int slot = 0 ; slot < ids.length ; slot++){
+            int id = ids[slot];
+
+            if(id < 0 || id >= groups || filled[id] == occurrences)
+                throw new IllegalArgumentException("The card " + id + " doesn't appear " + occurrences + " times !");
+
+            groupsSlots[id * occurrences + filled[id]++] = slot;
+        }
+
+        found = new BitSet(ids.length);
+        selection = new int[occurrences];
+        remainingGroups = groups;
+    }
+
+    /**
+     * Generate the ids of the cards and shuffle them (Fisher-Yates)
+     */
+    private static int[] shuffledIds(int cardsCount, int occurrences, Random random) {
+        if(occurrences <= 0 || cardsCount % occurrences != 0)
+            throw new IllegalArgumentException("The cards cannot be grouped by " + occurrences + " !");
+
+        int[] ids = new int[cardsCount];
+
+        for(int slot = 0 ; slot < cardsCount ; slot++)
+            ids[slot] = slot / occurrences;
+
+        for(int slot = cardsCount - 1 ; slot > 0 ; slot--){
+            int other = random.nextInt(slot + 1);
+            int id = ids[slot];
+            ids[slot] = ids[other];
+            ids[other] = id;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Check if a card can be picked, without picking it
+     * @param slot slot of the card
+     * @return false if picking the card would be ignored
+     */
+    public boolean canPick(int slot) {
+        return slot >= 0 && slot < ids.length && !found.get(slot) && !isSelected(slot);
+    }
+
+    /**
+     * Acknowledge that the player has selected a new card
+     * @param slot slot of the card the player clicked on
+     * @return the outcome of the pick
+     */
+    public PickResult pick(int slot) {
+        if(!canPick(slot))
+            return PickResult.IGNORED;
+
+        if(selectionSize > 0 && ids[selection[0]] != ids[slot])
+            selectionMismatched = true;
+
+        selection[selectionSize++] = slot;
+
+        //The player hasn't selected all the cards yet
+        if(selectionSize < occurrences)
+            return PickResult.SELECTED;
+
+        boolean mismatched = selectionMismatched;
+        clearSelection();
+
+        //All the cards are selected but the combination is wrong
+        if(mismatched){
+            errors++;
+            return PickResult.MISMATCHED;
+        }
+
+        //All the cards are selected and the combination is right
+        int groupStart = ids[slot] * occurrences;
+
+        for(int i = groupStart ; i < groupStart + occurrences ; i++)
+            found.set(groupsSlots[i]);
+
+        remainingGroups--;
+
+        return isCompleted() ? PickResult.COMPLETED : PickResult.MATCHED;
+    }
+
+    private void clearSelection() {
+        selectionSize = 0;
+        selectionMismatched = false;
+    }
+
+    /**
+     * Check if a card is part of the current selection
+     * @param slot slot of the card
+     * @return true if selected
+     */
+    public boolean isSelected(int slot) {
+        for(int i = 0 ; i < selectionSize ; i++)
+            if(selection[i] == slot)
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Check if the game is completed (ie. all the cards have been discovered)
+     * @return true if game is completed
+     */
+    public boolean isCompleted() {
+        return remainingGroups == 0;
+    }
+
+    /**
+     * Get the number of cards in the grid
+     * @return number of cards
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the number of different cards in the grid
+     * @return number of groups of cards
+     */
+    public int getGroupsCount() {
+        return ids.length / occurrences;
+    }
+
+    /**
+     * Get the occurrences of each card in the grid
+     * @return cards occurrences
+     */
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Get the id of a card
+     * @param slot slot of the card
+     * @return id of the card
+     */
+    public int getId(int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * Get the slot of one of the cards of a group
+     * @param id id of the group
+     * @param occurrence index of the card in the group (0 <= occurrence < occurrences)
+     * @return slot of the card
+     */
+    public int getGroupSlot(int id, int occurrence) {
+        return groupsSlots[id * occurrences + occurrence];
+    }
+
+    /**
+     * Whether or not a card has been found
+     * @param slot slot of the card
+     * @return true if found
+     */
+    public boolean isFound(int slot) {
+        return found.get(slot);
+    }
+
+    /**
+     * Get the number of cards currently selected
+     * @return size of the selection
+     */
+    public int getSelectionSize() {
+        return selectionSize;
+    }
+
+    /**
+     * Get a card of the current selection
+     * @param index index in the selection (0 <= index < selection size)
+     * @return slot of the selected card
+     */
+    public int getSelectedSlot(int index) {
+        if(index >= selectionSize)
+            throw new IndexOutOfBoundsException("Only " + selectionSize + " cards are selected !");
+
+        return selection[index];
+    }
+
+    /**
+     * Get the number of groups of cards which haven't been found yet
+     * @return remaining groups
+     */
+    public int getRemainingGroups() {
+        return remainingGroups;
+    }
+
+    /**
+     * Get the number of errors the player made
+     * @return number of errors
+     */
+    public int getErrors() {
+        return errors;
+    }
+}
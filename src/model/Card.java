@@ -6,7 +6,10 @@ import javafx.scene.image.Image;
 import java.util.UUID;
 
 /**
- * Card model object
+ * Card model object <br>
+ *
+ * A card is identified by its slot in the board (from left to right, then top to bottom). <br>
+ * An UUID is only generated if explicitly requested, as it relies on {@link java.security.SecureRandom}.
  *
  * @author lturpinat
  */
@@ -18,12 +21,14 @@ public class Card {
 
     private final BooleanProperty isFound = new SimpleBooleanProperty();
 
-    private final ObjectProperty<UUID> uuid = new SimpleObjectProperty<>();
+    private final int slot;
+
+    private ObjectProperty<UUID> uuid;
 
-    public Card(int id, Image imageFile) {
+    public Card(int id, Image imageFile, int slot) {
         setId(id);
         setImageFile(imageFile);
-        setUuid(UUID.randomUUID());
+        this.slot = slot;
     }
 
     //<editor-fold desc="JavaFX Getters/Setters/Properties">
@@ -60,14 +65,17 @@ public class Card {
         this.isFound.set(isFound);
     }
 
+    public int getSlot() {
+        return slot;
+    }
+
     public UUID getUuid() {
-        return uuid.get();
+        return uuidProperty().get();
     }
     public ObjectProperty<UUID> uuidProperty() {
+        if(uuid == null)
+            uuid = new SimpleObjectProperty<>(UUID.randomUUID());
         return uuid;
     }
-    private void setUuid(UUID uuid) {
-        this.uuid.set(uuid);
-    }
     //</editor-folder>
 }
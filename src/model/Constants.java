@@ -1,6 +1,9 @@
 package model;
 
+import data_initializers.CachedDataManager;
 import data_initializers.binary.BinaryDataManager;
+import data_initializers.binary.JournaledDataManager;
+import data_initializers.mapped.MappedDataManager;
 import data_initializers.xml.XMLDataManager;
 
 import java.util.ArrayList;
@@ -17,39 +20,41 @@ public final class Constants {
     private Constants() {}
 
     /**
-     * Maximal height of the grid
+     * Default maximal height of the grid <br>
+     * Note : it can be overridden at runtime, see {@link GridLimits}
      */
-    public static final int MAXIMAL_GRID_HEIGHT_SIZE = 5;
+    public static final int DEFAULT_MAXIMAL_GRID_HEIGHT_SIZE = 5;
 
     /**
-     * Maximal width of the grid
+     * Default maximal width of the grid <br>
+     * Note : it can be overridden at runtime, see {@link GridLimits}
      */
-    public static final int MAXIMAL_GRID_WIDTH_SIZE = 5;
+    public static final int DEFAULT_MAXIMAL_GRID_WIDTH_SIZE = 5;
 
     /**
-     * Minimal height of the grid
+     * System property overriding the maximal height of the grid (eg. -Dmemory.grid.maxHeight=100)
      */
-    public static final int MINIMAL_GRID_HEIGHT_SIZE = 2;
+    public static final String MAXIMAL_GRID_HEIGHT_PROPERTY = "memory.grid.maxHeight";
 
     /**
-     * Minimal width of the grid
+     * System property overriding the maximal width of the grid (eg. -Dmemory.grid.maxWidth=100)
      */
-    public static final int MINIMAL_GRID_WIDTH_SIZE = 2;
+    public static final String MAXIMAL_GRID_WIDTH_PROPERTY = "memory.grid.maxWidth";
 
     /**
-     * Maximal number of cards in the "maximal" grid configuration
+     * Minimal height of the grid
      */
-    private static final int TOTAL_CARDS = MAXIMAL_GRID_HEIGHT_SIZE * MAXIMAL_GRID_WIDTH_SIZE;
+    public static final int MINIMAL_GRID_HEIGHT_SIZE = 2;
 
     /**
-     * Minimal number of occurrences of card
+     * Minimal width of the grid
      */
-    public static final int MINIMAL_CARD_OCCURRENCES = 2;
+    public static final int MINIMAL_GRID_WIDTH_SIZE = 2;
 
     /**
-     * Maximal number of occurrences of card
+     * Minimal number of occurrences of card
      */
-    public static final int MAX_CARD_OCCURRENCES = TOTAL_CARDS/2;
+    public static final int MINIMAL_CARD_OCCURRENCES = 2;
 
     /**
      * Default height dimension of the grid in the game configuration window
@@ -62,9 +67,60 @@ public final class Constants {
     public static final int DEFAULT_WIDTH = 4;
 
     /**
-     * Minimal number of cards required to create the largest grid available
+     * Minimal number of cards required by a theme to create the smallest grid available <br>
+     * Note : larger grids are checked against the theme when the board is created, see {@link Theme#canPlay(int, int, int)}
+     */
+    public static final int MINIMAL_DECK_SIZE = (MINIMAL_GRID_HEIGHT_SIZE * MINIMAL_GRID_WIDTH_SIZE) / MINIMAL_CARD_OCCURRENCES;
+
+    /**
+     * Default memory budget of the decoded images cache, in bytes
+     */
+    public static final long DEFAULT_IMAGE_CACHE_BUDGET = 256L * 1024 * 1024;
+
+    /**
+     * System property overriding the memory budget of the decoded images cache, in bytes
+     */
+    public static final String IMAGE_CACHE_BUDGET_PROPERTY = "memory.images.cacheBudget";
+
+    /**
+     * Default number of cards from which a board is drawn on a single canvas instead of a node per card
+     */
+    public static final int DEFAULT_CANVAS_RENDERER_THRESHOLD = 400;
+
+    /**
+     * System property overriding the number of cards from which a board is drawn on a single canvas (eg. -Dmemory.board.canvasThreshold=0)
      */
-    public static final int MINIMAL_DECK_SIZE = Math.floorMod(TOTAL_CARDS, 2) == 1 ? (TOTAL_CARDS+1)/2 : TOTAL_CARDS/2;
+    public static final String CANVAS_RENDERER_THRESHOLD_PROPERTY = "memory.board.canvasThreshold";
+
+    /**
+     * Smallest size (in pixels) at which the card images are decoded
+     */
+    public static final int MINIMAL_CARD_IMAGE_SIZE = 32;
+
+    /**
+     * Largest size (in pixels) at which the card images are downscaled, beyond it they are decoded at their original size
+     */
+    public static final int MAXIMAL_CARD_IMAGE_SIZE = 1024;
+
+    /**
+     * System property telling whether or not the players' names are case-insensitive (false by default)
+     */
+    public static final String CASE_INSENSITIVE_PLAYER_NAMES_PROPERTY = "memory.players.caseInsensitive";
+
+    /**
+     * Default period (in milliseconds) during which the scores recorded asynchronously are gathered before being saved at once
+     */
+    public static final long DEFAULT_SAVE_WINDOW = 100;
+
+    /**
+     * System property overriding the period during which the scores are gathered before being saved, in milliseconds
+     */
+    public static final String SAVE_WINDOW_PROPERTY = "memory.players.saveWindow";
+
+    /**
+     * Number of best scores kept and displayed for each board configuration in the leader board
+     */
+    public static final int LEADER_BOARD_SIZE = 100;
 
     /**
      * Default file name for saving/loading data
@@ -76,6 +132,16 @@ public final class Constants {
      */
     public static final String DEFAULT_RESOURCES_FOLDER = "/resources";
 
+    /**
+     * System property of an additional themes folder, watched to pick up the themes added, updated or removed
+     */
+    public static final String WATCHED_THEMES_FOLDER_PROPERTY = "memory.themes.watchedFolder";
+
+    /**
+     * Default file name of the index of the analysed theme folders
+     */
+    public static final String THEME_INDEX_FILE_NAME = "themes.index";
+
     /**
      * Supported image file extensions for theme loading <br>
      * Note : each image type must be separated by a "|"
@@ -98,10 +164,13 @@ public final class Constants {
     public static final String HIDDEN_CARD_FILENAME = "0";
 
     /**
-     * List all the available data managers
+     * List all the available data managers <br>
+     * Note : the mapped and journaled data managers don't need to be cached, they only read what they need
      */
     public static final List<DataManager> AVAILABLE_DATA_INITIALIZERS = new ArrayList<DataManager>(){{
-        add(new BinaryDataManager());
-        add(new XMLDataManager());
+        add(new CachedDataManager(new BinaryDataManager()));
+        add(new CachedDataManager(new XMLDataManager()));
+        add(new MappedDataManager());
+        add(new JournaledDataManager());
     }};
 }
@@ -1,6 +1,10 @@
 package model;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DataManager model interface
@@ -26,4 +30,52 @@ public interface DataManager {
      * @throws DataLoadingException if anything goes wrong while saving data
      */
     void savePlayers(List<Player> players) throws DataLoadingException;
+
+    /**
+     * Save several new scores at once (eg. the scores recorded during a short period) <br>
+     * By default, the players are loaded again then saved along with the new scores, so that the scores saved meanwhile
+     * by another application aren't overwritten : a data manager can override it to only save the new scores
+     * (@see appendsScores())
+     * @param newScores players holding only their new scores
+     * @throws DataLoadingException if anything goes wrong while loading or saving data
+     */
+    default void recordScores(List<Player> newScores) throws DataLoadingException {
+        List<Player> players = new ArrayList<>(loadPlayers());
+        Map<String, Player> playersByName = new HashMap<>();
+
+        players.forEach(player -> playersByName.putIfAbsent(player.getName(), player));
+
+        for(Player newPlayer : newScores){
+            Player player = playersByName.get(newPlayer.getName());
+
+            if(player == null){//The player hasn't been saved yet
+                player = new Player(newPlayer.getName());
+
+                players.add(player);
+                playersByName.put(player.getName(), player);
+            }
+
+            player.getScores().addAll(newPlayer.getScores());
+        }
+
+        savePlayers(players);
+    }
+
+    /**
+     * Check if the data manager saves the new scores without writing all the players again (eg. in a journal) <br>
+     * Note : the players of the other data managers are loaded again before being written, which is cheap as long as
+     * their file hasn't changed (@see {@link data_initializers.CachedDataManager})
+     * @return true if the new scores are appended to the saved data
+     */
+    default boolean appendsScores() {
+        return false;
+    }
+
+    /**
+     * Get the file where the data manager loads and saves the players
+     * @return the file or null if the players aren't stored in a single file
+     */
+    default File getFile() {
+        return null;
+    }
 }
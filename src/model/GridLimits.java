@@ -0,0 +1,93 @@
+package model;
+
+import java.security.InvalidParameterException;
+
+import static model.Constants.*;
+
+/**
+ * GridLimits <br>
+ *
+ * Hold the maximal dimensions of the grid, which can be changed at runtime (eg. for stress or tournament modes). <br>
+ * The default values can be overridden with the {@code MAXIMAL_GRID_HEIGHT_PROPERTY} and
+ * {@code MAXIMAL_GRID_WIDTH_PROPERTY} system properties @see {@link Constants}
+ *
+ * @author lturpinat
+ */
+public final class GridLimits {
+
+    private static volatile int maximalHeight = Integer.getInteger(MAXIMAL_GRID_HEIGHT_PROPERTY, DEFAULT_MAXIMAL_GRID_HEIGHT_SIZE);
+
+    private static volatile int maximalWidth = Integer.getInteger(MAXIMAL_GRID_WIDTH_PROPERTY, DEFAULT_MAXIMAL_GRID_WIDTH_SIZE);
+
+    static {
+        checkLimits(maximalHeight, maximalWidth);
+    }
+
+    private GridLimits() {}
+
+    /**
+     * Change the maximal dimensions of the grid
+     * @param height maximal height of the grid
+     * @param width maximal width of the grid
+     * @throws InvalidParameterException if the dimensions are below the minimal ones or describe too many cards
+     */
+    public static synchronized void setMaximalSize(int height, int width) throws InvalidParameterException {
+        checkLimits(height, width);
+
+        maximalHeight = height;
+        maximalWidth = width;
+    }
+
+    /**
+     * Get the maximal height of the grid
+     * @return maximal height
+     */
+    public static int getMaximalHeight() {
+        return maximalHeight;
+    }
+
+    /**
+     * Get the maximal width of the grid
+     * @return maximal width
+     */
+    public static int getMaximalWidth() {
+        return maximalWidth;
+    }
+
+    /**
+     * Get the maximal number of cards in the "maximal" grid configuration
+     * @return maximal number of cards
+     */
+    public static int getTotalCards() {
+        return getMaximalHeight() * getMaximalWidth();
+    }
+
+    /**
+     * Get the maximal number of occurrences of card
+     * @return maximal number of occurrences
+     */
+    public static int getMaxCardOccurrences() {
+        return getTotalCards() / 2;
+    }
+
+    /**
+     * Check that a grid fits in the current maximal dimensions
+     * @param height height of the grid
+     * @param width width of the grid
+     * @throws InvalidParameterException if the grid is larger than the maximal one
+     */
+    public static void checkGrid(int height, int width) throws InvalidParameterException {
+        int maximalHeight = getMaximalHeight(), maximalWidth = getMaximalWidth();
+
+        if(height > maximalHeight || width > maximalWidth)
+            throw new InvalidParameterException("The grid must be at most " + maximalHeight + "x" + maximalWidth + " !");
+    }
+
+    private static void checkLimits(int height, int width) throws InvalidParameterException {
+        if(height < MINIMAL_GRID_HEIGHT_SIZE || width < MINIMAL_GRID_WIDTH_SIZE)
+            throw new InvalidParameterException("The maximal grid size must be at least " + MINIMAL_GRID_HEIGHT_SIZE + "x" + MINIMAL_GRID_WIDTH_SIZE + " !");
+
+        if((long) height * width > Integer.MAX_VALUE)
+            throw new InvalidParameterException("The maximal grid size " + height + "x" + width + " describes too many cards !");
+    }
+}
@@ -0,0 +1,291 @@
+package model;
+
+import javafx.collections.ObservableListBase;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Read-only list of the scores of a {@link ScoresStore}, meant to be displayed in a table <br>
+ *
+ * The scores are only turned into {@link ScoresOfPlayer} when they are read, a page at a time, and only the last
+ * pages read are kept in memory : a table only reading its visible rows, a few pages are materialized whatever the
+ * number of scores. <br>
+ * Sorting and filtering are made on the fields of the store, by reordering the indexes of the scores, without
+ * materializing any row. <br>
+ * Note : the list is not thread-safe, it should only be used from the JavaFX Application Thread
+ *
+ * @author lturpinat
+ */
+public class LazyScoresList extends ObservableListBase<ScoresOfPlayer> {
+
+    /**
+     * Fields the scores can be sorted by
+     */
+    public enum Column {
+        PLAYER_NAME, DATE, DURATION, ERROR_RATIO, HEIGHT, WIDTH
+    }
+
+    private static final int PAGE_SIZE = 64;
+    private static final int MAXIMAL_CACHED_PAGES = 16;
+
+    private final ScoresStore store;
+
+    /**
+     * Indexes in the store of the scores of the list, in the order of the list
+     */
+    private int[] order;
+
+    private Column sortColumn;
+    private boolean ascending = true;
+    private String playerNameFilter;
+
+    /**
+     * Last pages read, the least recently read being evicted first
+     */
+    private final Map<Integer, ScoresOfPlayer[]> pages = new LinkedHashMap<Integer, ScoresOfPlayer[]>(MAXIMAL_CACHED_PAGES, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ScoresOfPlayer[]> eldest) {
+            return size() > MAXIMAL_CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Construct a LazyScoresList of all the scores of the store, in the order of the store
+     * @param store scores to list
+     */
+    public LazyScoresList(ScoresStore store) {
+        assert store != null : "The scores store shouldn't be null";
+
+        this.store = store;
+        this.order = computeOrder();
+    }
+
+    @Override
+    public ScoresOfPlayer get(int index) {
+        if(index < 0 || index >= order.length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + order.length + " scores");
+
+        int pageIndex = index / PAGE_SIZE;
+        ScoresOfPlayer[] page = pages.get(pageIndex);
+
+        if(page == null){
+            int from = pageIndex * PAGE_SIZE;
+            page = new ScoresOfPlayer[Math.min(PAGE_SIZE, order.length - from)];
+
+            for(int i = 0; i < page.length; i++)
+                page[i] = createRow(order[from + i]);
+
+            pages.put(pageIndex, page);
+        }
+
+        return page[index % PAGE_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Sort the scores <br>
+     * Note : the scores which are equal stay in the order of the store
+     * @param column field to sort by, or null for the order of the store
+     * @param ascending true for the smallest first
+     */
+    public void sort(Column column, boolean ascending) {
+        //Already sorted (eg. the table sorting its items again)
+        if(column == sortColumn && (column == null || ascending == this.ascending))
+            return;
+
+        this.sortColumn = column;
+        this.ascending = ascending;
+
+        update();
+    }
+
+    /**
+     * Only keep the scores of the players whose name contains {@code playerName} (case-insensitive)
+     * @param playerName part of the name of the players, or null (or empty) to keep all the scores
+     */
+    public void filter(String playerName) {
+        String playerNameFilter = playerName == null || playerName.isEmpty() ? null : playerName.toLowerCase(Locale.ROOT);
+
+        if(Objects.equals(playerNameFilter, this.playerNameFilter))
+            return;
+
+        this.playerNameFilter = playerNameFilter;
+
+        update();
+    }
+
+    /**
+     * Apply the sort and the filter, then notify that all the scores have been replaced
+     */
+    private void update() {
+        int[] previousOrder = order;
+
+        order = computeOrder();
+        pages.clear();
+
+        beginChange();
+        nextReplace(0, order.length, new Rows(previousOrder));
+        endChange();
+    }
+
+    private int[] computeOrder() {
+        int[] indexes = new int[store.getScoresCount()];
+        int size = 0;
+
+        boolean[] keptPlayers = playerNameFilter == null ? null : getKeptPlayers();
+
+        for(int i = 0; i < indexes.length; i++){
+            if(keptPlayers == null || keptPlayers[store.getPlayerIndex(i)])
+                indexes[size++] = i;
+        }
+
+        indexes = Arrays.copyOf(indexes, size);
+
+        if(sortColumn != null)
+            sort(indexes, getComparator(sortColumn, ascending));
+
+        return indexes;
+    }
+
+    /**
+     * Match the players against the filter once, instead of once per score
+     */
+    private boolean[] getKeptPlayers() {
+        boolean[] keptPlayers = new boolean[store.getPlayersCount()];
+
+        for(int i = 0; i < keptPlayers.length; i++)
+            keptPlayers[i] = store.getPlayerName(i).toLowerCase(Locale.ROOT).contains(playerNameFilter);
+
+        return keptPlayers;
+    }
+
+    /**
+     * Get a comparator of the indexes of the scores on a field <br>
+     * Note : the field of every score is read once, so that sorting doesn't read the store for each comparison
+     */
+    private IndexComparator getComparator(Column column, boolean ascending) {
+        long[] keys = new long[store.getScoresCount()];
+
+        switch (column){
+            case PLAYER_NAME:
+                //The players are ranked by name once, the scores are then compared by rank
+                int[] ranks = getPlayerRanks();
+
+                for(int i = 0; i < keys.length; i++)
+                    keys[i] = ranks[store.getPlayerIndex(i)];
+                break;
+            case DATE:
+                for(int i = 0; i < keys.length; i++)
+                    keys[i] = store.getEpochDay(i);
+                break;
+            case DURATION:
+                for(int i = 0; i < keys.length; i++)
+                    keys[i] = store.getDurationMillis(i);
+                break;
+            case ERROR_RATIO:
+                //Bits of the ratio, ordered like the ratios themselves (negative ratios having their order reversed)
+                for(int i = 0; i < keys.length; i++){
+                    long bits = Double.doubleToLongBits(store.getErrorRatio(i));
+                    keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+                }
+                break;
+            case HEIGHT:
+                for(int i = 0; i < keys.length; i++)
+                    keys[i] = store.getHeight(i);
+                break;
+            case WIDTH:
+                for(int i = 0; i < keys.length; i++)
+                    keys[i] = store.getWidth(i);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown column " + column);
+        }
+
+        return ascending ? (a, b) -> Long.compare(keys[a], keys[b]) : (a, b) -> Long.compare(keys[b], keys[a]);
+    }
+
+    private int[] getPlayerRanks() {
+        Integer[] playersByName = new Integer[store.getPlayersCount()];
+
+        for(int i = 0; i < playersByName.length; i++)
+            playersByName[i] = i;
+
+        Arrays.sort(playersByName, Comparator.comparing(store::getPlayerName));
+
+        int[] ranks = new int[playersByName.length];
+
+        for(int rank = 0; rank < playersByName.length; rank++)
+            ranks[playersByName[rank]] = rank;
+
+        return ranks;
+    }
+
+    private ScoresOfPlayer createRow(int scoreIndex) {
+        Score score = new Score(LocalDate.ofEpochDay(store.getEpochDay(scoreIndex)),
+                Duration.ofMillis(store.getDurationMillis(scoreIndex)),
+                new BoardConfiguration(store.getHeight(scoreIndex), store.getWidth(scoreIndex)),
+                store.getErrorRatio(scoreIndex));
+
+        return new ScoresOfPlayer(score, store.getPlayerName(store.getPlayerIndex(scoreIndex)));
+    }
+
+    /**
+     * Stable merge sort of the indexes, without boxing them
+     */
+    private static void sort(int[] indexes, IndexComparator comparator) {
+        int[] buffer = new int[indexes.length];
+
+        for(int width = 1; width < indexes.length; width *= 2){
+            for(int from = 0; from < indexes.length - width; from += 2 * width){
+                int middle = from + width;
+                int to = Math.min(from + 2 * width, indexes.length);
+
+                //Already in order
+                if(comparator.compare(indexes[middle - 1], indexes[middle]) <= 0)
+                    continue;
+
+                System.arraycopy(indexes, from, buffer, from, to - from);
+
+                int left = from, right = middle;
+
+                for(int i = from; i < to; i++){
+                    if(right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0))
+                        indexes[i] = buffer[left++];
+                    else
+                        indexes[i] = buffer[right++];
+                }
+            }
+        }
+    }
+
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Scores of a previous order, materialized if they are read (eg. by a listener looking at the removed scores)
+     */
+    private final class Rows extends AbstractList<ScoresOfPlayer> {
+        private final int[] order;
+
+        private Rows(int[] order) {
+            this.order = order;
+        }
+
+        @Override
+        public ScoresOfPlayer get(int index) {
+            return createRow(order[index]);
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+    }
+}
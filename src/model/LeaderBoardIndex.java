@@ -0,0 +1,181 @@
+package model;
+
+import java.security.InvalidParameterException;
+import java.util.*;
+
+/**
+ * Index of the best scores of each board configuration (height x width) <br>
+ *
+ * For each configuration, the {@code capacity} best scores are kept sorted by error ratio and by duration. The index
+ * is updated as the scores are recorded, so that reading the top of a configuration only costs the size of the top,
+ * whatever the number of scores ever recorded. <br>
+ * Note : the scores which fall out of both rankings are forgotten, the index has to be rebuilt if scores are removed
+ *
+ * @author lturpinat
+ */
+public class LeaderBoardIndex {
+
+    /**
+     * Orders in which the scores of a configuration are ranked
+     */
+    public enum Ranking {
+        /**
+         * Lowest error ratio first, then shortest duration
+         */
+        ERROR_RATIO,
+        /**
+         * Shortest duration first, then lowest error ratio
+         */
+        DURATION
+    }
+
+    private static final Comparator<Entry> BY_ERROR_RATIO = Comparator
+            .comparingDouble((Entry entry) -> entry.score.getErrorRation())
+            .thenComparing(entry -> entry.score.getDuration())
+            .thenComparingLong(entry -> entry.sequence);
+
+    private static final Comparator<Entry> BY_DURATION = Comparator
+            .comparing((Entry entry) -> entry.score.getDuration())
+            .thenComparingDouble(entry -> entry.score.getErrorRation())
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final int capacity;
+
+    /**
+     * Rankings by configuration (@see configurationKey())
+     */
+    private final Map<Long, Rankings> rankings = new HashMap<>();
+
+    /**
+     * Order of insertion of the scores, to rank equal scores by seniority
+     */
+    private long sequence;
+
+    /**
+     * Construct an empty LeaderBoardIndex
+     * @param capacity number of scores kept in each ranking of a configuration
+     */
+    public LeaderBoardIndex(int capacity) {
+        if(capacity <= 0)
+            throw new InvalidParameterException("The capacity of the leader board must be positive!");
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * Construct a LeaderBoardIndex of the scores of the players
+     * @param capacity number of scores kept in each ranking of a configuration
+     * @param players players whose scores are indexed
+     */
+    public LeaderBoardIndex(int capacity, List<Player> players) {
+        this(capacity);
+
+        players.forEach(player -> player.getScores().forEach(score -> add(player.getName(), score)));
+    }
+
+    /**
+     * Index a new score, in O(log(capacity))
+     * @param playerName player who made the score
+     * @param score new score
+     */
+    public synchronized void add(String playerName, Score score) {
+        BoardConfiguration configuration = score.getBoardConfiguration();
+
+        rankings.computeIfAbsent(configurationKey(configuration.getHeight(), configuration.getWidth()),
+                key -> new Rankings(configuration.getHeight(), configuration.getWidth()))
+                .add(new Entry(playerName, score, sequence++));
+    }
+
+    /**
+     * Get the best scores of a configuration, in O(count)
+     * @param height height of the board
+     * @param width width of the board
+     * @param ranking order of the scores
+     * @param count maximal number of scores (at most {@code capacity} scores are kept)
+     * @return the best scores, the best first
+     */
+    public synchronized List<ScoresOfPlayer> getTop(int height, int width, Ranking ranking, int count) {
+        Rankings configurationRankings = rankings.get(configurationKey(height, width));
+
+        if(configurationRankings == null)
+            return new ArrayList<>();
+
+        NavigableSet<Entry> entries = ranking == Ranking.ERROR_RATIO ? configurationRankings.byErrorRatio : configurationRankings.byDuration;
+        List<ScoresOfPlayer> top = new ArrayList<>(Math.min(count, entries.size()));
+
+        for(Entry entry : entries){
+            if(top.size() >= count)
+                break;
+
+            top.add(new ScoresOfPlayer(entry.score, entry.playerName));
+        }
+
+        return top;
+    }
+
+    /**
+     * Get the configurations which have at least one score
+     * @return the configurations, sorted by height then width
+     */
+    public synchronized List<BoardConfiguration> getConfigurations() {
+        List<BoardConfiguration> configurations = new ArrayList<>(rankings.size());
+
+        new TreeMap<>(rankings).values()
+                .forEach(configurationRankings -> configurations.add(new BoardConfiguration(configurationRankings.height, configurationRankings.width)));
+
+        return configurations;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Key of a configuration, ordered by height then width
+     */
+    private static long configurationKey(int height, int width) {
+        return ((long) height << 32) | width;
+    }
+
+    /**
+     * Best scores of a configuration
+     */
+    private final class Rankings {
+        private final int height, width;
+
+        private final TreeSet<Entry> byErrorRatio = new TreeSet<>(BY_ERROR_RATIO);
+        private final TreeSet<Entry> byDuration = new TreeSet<>(BY_DURATION);
+
+        private Rankings(int height, int width) {
+            this.height = height;
+            this.width = width;
+        }
+
+        private void add(Entry entry) {
+            byErrorRatio.add(entry);
+            byDuration.add(entry);
+
+            //Only the best scores are kept
+            if(byErrorRatio.size() > capacity)
+                byErrorRatio.pollLast();
+
+            if(byDuration.size() > capacity)
+                byDuration.pollLast();
+        }
+    }
+
+    /**
+     * Indexed score
+     */
+    private static final class Entry {
+        private final String playerName;
+        private final Score score;
+        private final long sequence;
+
+        private Entry(String playerName, Score score, long sequence) {
+            this.playerName = playerName;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -1,50 +1,143 @@
 package model;
 
+import javafx.collections.FXCollections;
+import utils.ImageCache;
 import utils.ResourceFinder;
+import utils.ThemeWatcher;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.security.InvalidParameterException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static model.Constants.DEFAULT_RESOURCES_FOLDER;
+import static model.Constants.CASE_INSENSITIVE_PLAYER_NAMES_PROPERTY;
+import static model.Constants.DEFAULT_SAVE_WINDOW;
+import static model.Constants.LEADER_BOARD_SIZE;
+import static model.Constants.SAVE_WINDOW_PROPERTY;
 
 /**
  * {@link Manager} is meant to manage every main features of the game, which are : <br>
  * - Players' scores <br>
+ * - The best scores of each board configuration (@see {@link LeaderBoardIndex}) <br>
  * - Data's redundancy <br>
  * - Providing the {@link Theme}s produced and analysed by {@link ResourceFinder} <br>
+ * - Keeping the themes up to date with their folders (@see {@link ThemeWatcher}) <br>
+ * <br>
+ * Scores can be recorded from several threads (eg. several boards finishing at the same time) : <br>
+ * - the players are updated one name at a time, without blocking the scores of the other players <br>
+ * - the data managers are only used from a single persistence thread, so that no score is lost <br>
+ * - the data managers writing all the players load them again before each write, so that the scores saved meanwhile
+ *   by another application aren't overwritten (@see {@link DataManager#recordScores(List)}) <br>
+ * - the scores recorded asynchronously during a short window are saved at once (@see recordScoreAsync()) <br>
  *
  * @author lturpinat
  */
 public class Manager {
 
+    /**
+     * Players in registration order <br>
+     * Note : it is synchronized, the scores of a player being guarded by the player itself
+     */
     private List<Player> players;
 
-    private List<Theme> themes;
+    /**
+     * Index of the players by name (@see nameKey()), kept consistent with {@code players}
+     */
+    private ConcurrentMap<String, Player> playersByName;
+
+    /**
+     * Best scores of the players, kept consistent with {@code players}
+     */
+    private LeaderBoardIndex leaderBoard;
+
+    /**
+     * Shared to update the players, exclusive to replace them
+     */
+    private final ReadWriteLock playersLock = new ReentrantReadWriteLock();
+
+    /**
+     * Single thread loading and saving the players, so that the data managers are never used concurrently <br>
+     * Note : it is a daemon thread so that it never prevents the application from stopping
+     */
+    private static final ScheduledExecutorService PERSISTENCE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "players-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Scores waiting to be saved, along with the data manager they were recorded with
+     */
+    private final List<PendingScore> pendingScores = new ArrayList<>();
+
+    /**
+     * Completed once the pending scores are saved, null if no save is scheduled <br>
+     * Note : both are guarded by {@code pendingScores}
+     */
+    private CompletableFuture<Void> pendingSave;
+
+    /**
+     * Data manager each pending score is waiting to be saved with, so that the copies of the players written by this
+     * data manager leave it out (@see snapshotPlayers()) <br>
+     * Note : a score is added to it along with its player, while the player is locked
+     */
+    private final Map<Score, DataManager> pendingDataManagers = new ConcurrentHashMap<>();
+
+    /**
+     * Period during which the scores are gathered before being saved, in milliseconds
+     */
+    private volatile long saveWindow = Long.getLong(SAVE_WINDOW_PROPERTY, DEFAULT_SAVE_WINDOW);
 
-    private DataManager dataManager;
+    private volatile boolean caseInsensitiveNames = Boolean.getBoolean(CASE_INSENSITIVE_PLAYER_NAMES_PROPERTY);
+
+    /**
+     * Loaded themes <br>
+     * Note : the themes can be updated by the theme watchers while they are read
+     */
+    private final List<Theme> themes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Watchers of the themes folders, by folder
+     */
+    private final Map<URI, ThemeWatcher> themeWatchers = new ConcurrentHashMap<>();
+
+    private volatile DataManager dataManager;
+
+    /**
+     * Data manager the current players have been loaded from, null if they haven't been loaded
+     */
+    private volatile DataManager loadedDataManager;
 
     private final static Logger LOGGER = Logger.getLogger(Manager.class.getName());
 
     public Manager() {
         //Initialize players with empty data
-        players = new ArrayList<>();
+        setPlayers(new ArrayList<>(), new LeaderBoardIndex(LEADER_BOARD_SIZE));
 
         try {
             LOGGER.log(Level.INFO, "Loading themes from " + DEFAULT_RESOURCES_FOLDER + "...");
 
             //Load default themes
-            themes = ResourceFinder.getAvailableThemes(getClass().getResource(DEFAULT_RESOURCES_FOLDER).toURI());
+            //Note : only the folders are listed, the images of a theme are resolved later (@see Theme)
+            List<Theme> defaultThemes = ResourceFinder.getThemeDescriptors(getClass().getResource(DEFAULT_RESOURCES_FOLDER).toURI());
 
             LOGGER.log(Level.INFO, "Loaded !");
 
-            assert themes != null : "The themes list shouldn't be empty!";
+            assert defaultThemes != null : "The themes list shouldn't be empty!";
+
+            themes.addAll(defaultThemes);
+
+            //Their images are looked for in the background, so that they are known before the player chooses a theme
+            ResourceFinder.resolveThemesAsync(defaultThemes);
         } catch (URISyntaxException | NullPointerException e) {
             //As those themes are default, there shouldn't be any loading issue
             throw new RuntimeException("Should never go there!");
@@ -56,12 +149,20 @@ public class Manager {
      * Note : if the data manager isn't set, empty data will be loaded
      */
     public void loadPlayers(){
+        DataManager dataManager = this.dataManager;
+
         try {
             //If not data manager is set, do nothing
             if(dataManager == null)
                 return;
 
-            players = dataManager.loadPlayers();
+            //Loaded after the pending saves, the scores still gathered being saved first so that they aren't lost
+            //Note : the players are replaced on the persistence thread too, so that no save or load happens in between
+            persist(() -> {
+                savePendingScores();
+                replacePlayers(dataManager, dataManager.loadPlayers());
+                return null;
+            });
 
         } catch (DataLoadingException e) {
             e.printStackTrace();
@@ -73,17 +174,147 @@ public class Manager {
      * Note : if the data manager isn't set, no data will be save
      */
     public void savePlayers(){
+        DataManager dataManager = this.dataManager;
+
         try {
             //If not data manager is set, do nothing
             if(dataManager == null)
                 return;
 
-            dataManager.savePlayers(getPlayers());
+            //The scores waiting to be saved with this data manager are left out, their own save writing them
+            persist(() -> {
+                dataManager.savePlayers(snapshotPlayers(dataManager));
+                return null;
+            });
         } catch (DataLoadingException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Record a new score of a player and save it in the background <br>
+     * The scores recorded within {@code saveWindow} milliseconds are gathered and saved at once by the data manager
+     * (@see {@link DataManager#recordScores(List)}), so that a burst of scores costs a single write. <br>
+     * Note : the player is updated right away, only the save is delayed
+     * @param playerName player who made the score
+     * @param score score of the game
+     * @return completed once the score is saved, or exceptionally with a {@link DataLoadingException} if it couldn't be
+     */
+    public CompletableFuture<Void> recordScoreAsync(String playerName, Score score){
+        DataManager dataManager = this.dataManager;
+
+        //If not data manager is set, there is nothing to save
+        if(dataManager == null){
+            createOrUpdatePlayer(playerName, score);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        PendingScore pendingScore = new PendingScore(dataManager, score);
+
+        addScore(playerName, pendingScore);
+
+        return pendingScore.save;
+    }
+
+    /**
+     * Add a score waiting to be saved, along with the player it has just been added to <br>
+     * Note : it is called while the player is locked
+     * @param pendingScore score to save, its player name being the name of the player
+     */
+    private void addPendingScore(PendingScore pendingScore){
+        synchronized (pendingScores) {
+            pendingScores.add(pendingScore);
+            pendingDataManagers.put(pendingScore.score, pendingScore.dataManager);
+
+            //The first score of the window schedules the save of the whole window
+            if(pendingSave == null){
+                pendingSave = new CompletableFuture<>();
+                PERSISTENCE_EXECUTOR.schedule(this::savePendingScores, saveWindow, TimeUnit.MILLISECONDS);
+            }
+
+            pendingScore.save = pendingSave;
+        }
+    }
+
+    /**
+     * Save the scores gathered during the window, on the persistence thread
+     */
+    private void savePendingScores(){
+        List<PendingScore> scores;
+        CompletableFuture<Void> save;
+
+        synchronized (pendingScores) {
+            scores = new ArrayList<>(pendingScores);
+            save = pendingSave;
+
+            pendingScores.clear();
+            pendingSave = null;
+        }
+
+        //Written by this save, so they are part of the players written from now on
+        scores.forEach(pendingScore -> pendingDataManagers.remove(pendingScore.score));
+
+        //Already saved (eg. before loading the players)
+        if(save == null)
+            return;
+
+        //Scores grouped by data manager (it may have changed during the window) then by player
+        Map<DataManager, Map<String, List<Score>>> scoresByDataManager = new LinkedHashMap<>();
+
+        for(PendingScore pendingScore : scores)
+            scoresByDataManager.computeIfAbsent(pendingScore.dataManager, dataManager -> new LinkedHashMap<>())
+                    .computeIfAbsent(pendingScore.playerName, playerName -> new ArrayList<>())
+                    .add(pendingScore.score);
+
+        try {
+            for(Map.Entry<DataManager, Map<String, List<Score>>> entry : scoresByDataManager.entrySet()){
+                List<Player> newScores = new ArrayList<>();
+
+                entry.getValue().forEach((playerName, playerScores) ->
+                        newScores.add(new Player(playerName, FXCollections.observableArrayList(playerScores))));
+
+                entry.getKey().recordScores(newScores);
+            }
+
+            LOGGER.log(Level.FINE, scores.size() + " score(s) saved at once.");
+
+            save.complete(null);
+        } catch (DataLoadingException | RuntimeException e) {
+            save.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Set the period during which the scores recorded asynchronously are gathered before being saved
+     * @param saveWindow period, in milliseconds (0 to save them as soon as possible)
+     */
+    public void setSaveWindow(long saveWindow){
+        if(saveWindow < 0)
+            throw new InvalidParameterException("The save window cannot be negative!");
+
+        this.saveWindow = saveWindow;
+    }
+
+    /**
+     * Run a loading or saving task on the persistence thread and wait for it
+     * @param task task using the data manager
+     * @return result of the task
+     * @throws DataLoadingException if the task failed
+     */
+    private static <T> T persist(Callable<T> task) throws DataLoadingException {
+        try {
+            return PERSISTENCE_EXECUTOR.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataLoadingException("Interrupted while waiting for the players to be persisted!", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof DataLoadingException)
+                throw (DataLoadingException) e.getCause();
+
+            throw new DataLoadingException("Cannot persist the players!", e.getCause());
+        }
+    }
+
     /**
      * Chose which data manager will be used to enable data's redundancy
      * @param dataManager the data manager to use
@@ -93,35 +324,145 @@ public class Manager {
     }
 
     /**
-     * Load additional themes in the Manager from a folder
+     * Chose which data manager will be used, and load its players again unless they are already up to date <br>
+     * The players of a data manager appending the scores (@see {@link DataManager#appendsScores()}) are kept up to date
+     * as the scores are recorded, so they are only loaded once. The players of the other data managers are loaded
+     * again each time, the file having possibly been written by another application. <br>
+     * Note : loading again an unchanged file is cheap (@see {@link data_initializers.CachedDataManager})
+     * @param dataManager the data manager to use
+     */
+    public void useDataManager(DataManager dataManager){
+        setDataManager(dataManager);
+
+        if(dataManager != loadedDataManager || !dataManager.appendsScores())
+            loadPlayers();
+    }
+
+    /**
+     * Load additional themes in the Manager from a folder <br>
+     * Note : the images of the themes are resolved in the background, and the themes already loaded are skipped
      * @param resourceDirectoryPath the folder containing the themes
      * @return true if the themes could be loaded and added to the Manager
      */
     public boolean loadAdditionalThemes(URI resourceDirectoryPath) {
         assert resourceDirectoryPath != null : "resourceDirectoryPath cannot be null!";
 
-        List<Theme> themes = ResourceFinder.getAvailableThemes(resourceDirectoryPath);
+        List<Theme> themes = ResourceFinder.getThemeDescriptors(resourceDirectoryPath);
 
-        return themes != null && this.themes.addAll(themes);
+        if(themes == null)
+            return false;
+
+        themes.forEach(this::addTheme);
+        ResourceFinder.resolveThemesAsync(themes);
+
+        return true;
     }
 
     /**
-     * Create a new player and record its new score or add it to an existing player
+     * Load additional themes from a folder and keep them up to date : themes are added, updated or removed
+     * as their folders change, without rescanning the whole folder <br>
+     * Note : watching a folder again replaces its previous watcher, which is closed
+     * @param resourceDirectoryPath the folder containing the themes
+     * @return true if the themes could be loaded and the folder is watched
+     */
+    public boolean watchThemes(URI resourceDirectoryPath) {
+        if(!loadAdditionalThemes(resourceDirectoryPath))
+            return false;
+
+        try {
+            closeThemeWatcher(themeWatchers.put(resourceDirectoryPath, new ThemeWatcher(resourceDirectoryPath, new ThemesUpdater())));
+
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't watch the themes of " + resourceDirectoryPath + " !", e);
+            return false;
+        }
+    }
+
+    /**
+     * Stop watching all the themes folders (eg. when the application stops) <br>
+     * Note : the themes already loaded are kept
+     */
+    public void stopWatchingThemes() {
+        for(Iterator<ThemeWatcher> iterator = themeWatchers.values().iterator(); iterator.hasNext(); ){
+            closeThemeWatcher(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static void closeThemeWatcher(ThemeWatcher themeWatcher) {
+        if(themeWatcher == null)
+            return;
+
+        try {
+            themeWatcher.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't stop watching a themes folder !", e);
+        }
+    }
+
+    /**
+     * Add a theme, unless a theme of the same folder is already loaded
+     * @param theme theme to add
+     */
+    private synchronized void addTheme(Theme theme) {
+        if(theme.getFolder() == null || findTheme(theme.getFolder()) == null)
+            themes.add(theme);
+    }
+
+    /**
+     * Find the theme of a folder
+     * @param folder folder of the theme
+     * @return the theme or null if no theme of this folder is loaded
+     */
+    private Theme findTheme(URI folder) {
+        return themes.stream().filter(x -> folder.equals(x.getFolder())).findFirst().orElse(null);
+    }
+
+    /**
+     * Create a new player and record its new score or add it to an existing player <br>
+     * Note : it can be called from any thread, only the updates of the same player being serialized
      * @param playerName player who made the score
      * @param score score of the game
      */
     public void createOrUpdatePlayer(String playerName, Score score){
-        if(!isPlayerRegistered(playerName)){//The player doesn't exist
-            players.add(new Player(playerName){{
-                getScores().add(score);
-            }});//Create him along with his score
+        addScore(playerName, new PendingScore(null, score));
+    }
 
-            return;
-        }
+    /**
+     * Create a new player and record its new score or add it to an existing player
+     * @param playerName player who made the score
+     * @param score score of the game, waiting to be saved unless it has no data manager
+     */
+    private void addScore(String playerName, PendingScore score){
+        playersLock.readLock().lock();
+
+        try {
+            playersByName.compute(nameKey(playerName), (key, player) -> {
+                if(player == null){//The player doesn't exist
+                    player = new Player(playerName);//Create him
+
+                    players.add(player);
+                }
+
+                //Add this score to its prize list
+                //Note : it is pending as soon as it is added, so that no copy of the player sees it unsaved but not pending
+                synchronized (player) {
+                    player.getScores().add(score.score);
+
+                    if(score.dataManager != null){
+                        score.playerName = player.getName();
+                        addPendingScore(score);
+                    }
+                }
+
+                leaderBoard.add(player.getName(), score.score);
 
-        //Find the existing player add this score to its prize list
-        players.stream().filter(x -> x.getName().equals(playerName))
-                .findFirst().orElse(null).getScores().add(score);
+                return player;
+            });
+        } finally {
+            playersLock.readLock().unlock();
+        }
     }
 
     /**
@@ -130,15 +471,159 @@ public class Manager {
      * @return true if already registered
      */
     public boolean isPlayerRegistered(String playerName){
-        return getPlayers().stream().anyMatch(x -> x.getName().equals(playerName));
+        return getPlayer(playerName) != null;
+    }
+
+    /**
+     * Find a registered player
+     * @param playerName player's name
+     * @return the player or null if not registered
+     */
+    public Player getPlayer(String playerName){
+        playersLock.readLock().lock();
+
+        try {
+            return playersByName.get(nameKey(playerName));
+        } finally {
+            playersLock.readLock().unlock();
+        }
     }
 
     /**
-     * Get players
+     * Chose whether or not the players' names are case-insensitive (eg. "Bob" and "bob" are the same player) <br>
+     * Note : the default value is read from the {@code CASE_INSENSITIVE_PLAYER_NAMES_PROPERTY} system property
+     * @param caseInsensitiveNames true to ignore the case of the names
+     */
+    public void setCaseInsensitiveNames(boolean caseInsensitiveNames){
+        playersLock.writeLock().lock();
+
+        try {
+            this.caseInsensitiveNames = caseInsensitiveNames;
+
+            //Only the names are indexed again, the scores being the same
+            setPlayers(players, leaderBoard);
+        } finally {
+            playersLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the players and index them by name <br>
+     * Note : if several players have the same name, the first one is indexed
+     * @param players new players
+     * @param leaderBoard best scores of the new players, then updated as the scores are recorded
+     */
+    private void setPlayers(List<Player> players, LeaderBoardIndex leaderBoard){
+        ConcurrentMap<String, Player> playersByName = new ConcurrentHashMap<>(Math.max(16, (int) (players.size() / 0.75f) + 1));
+
+        players.forEach(player -> playersByName.putIfAbsent(nameKey(player.getName()), player));
+
+        playersLock.writeLock().lock();
+
+        try {
+            this.players = Collections.synchronizedList(new ArrayList<>(players));
+            this.playersByName = playersByName;
+            this.leaderBoard = leaderBoard;
+        } finally {
+            playersLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the players by the ones loaded from a data manager <br>
+     * The scores still pending for this data manager were recorded while it was loading : they aren't written yet
+     * (@see snapshotPlayers()), so they are recorded again on the loaded players. <br>
+     * Note : it must be called on the persistence thread, once the pending scores have been saved
+     * @param dataManager data manager the players have been loaded from
+     * @param loadedPlayers players loaded
+     */
+    private void replacePlayers(DataManager dataManager, List<Player> loadedPlayers){
+        //The only time the best scores are indexed from scratch, before the players are locked
+        LeaderBoardIndex leaderBoard = new LeaderBoardIndex(LEADER_BOARD_SIZE, loadedPlayers);
+
+        playersLock.writeLock().lock();
+
+        try {
+            setPlayers(loadedPlayers, leaderBoard);
+            this.loadedDataManager = dataManager;
+
+            List<PendingScore> scores;
+
+            synchronized (pendingScores) {
+                scores = new ArrayList<>(pendingScores);
+            }
+
+            for(PendingScore pendingScore : scores){
+                if(pendingScore.dataManager == dataManager)
+                    createOrUpdatePlayer(pendingScore.playerName, pendingScore.score);
+            }
+        } finally {
+            playersLock.writeLock().unlock();
+        }
+    }
+
+    private String nameKey(String playerName){
+        return caseInsensitiveNames ? playerName.toLowerCase(Locale.ROOT) : playerName;
+    }
+
+    /**
+     * Get the best scores of each board configuration, updated as the scores are recorded
+     * @return the leader board of the current players
+     */
+    public LeaderBoardIndex getLeaderBoard() {
+        playersLock.readLock().lock();
+
+        try {
+            return leaderBoard;
+        } finally {
+            playersLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get players <br>
+     * Note : the players are copied, so that they can be read while other scores are recorded
      * @return an unmodifiable list of players (cf. Collections' unmodifiable lists)
      */
     public List<Player> getPlayers() {
-        return Collections.unmodifiableList(players);
+        return Collections.unmodifiableList(snapshotPlayers(null));
+    }
+
+    /**
+     * Copy the players as they are now (eg. to be written by a data manager) <br>
+     * The copy is taken under the read lock, so that the players cannot be replaced while they are copied, but the
+     * scores keep being recorded : each player is only locked while its own scores are copied. <br>
+     * Note : the scores pending for the data manager are left out, so that they are written once, by their own save
+     * @param dataManager data manager the copy is written by, null to copy all the scores
+     * @return a copy of each player along with its scores
+     */
+    private List<Player> snapshotPlayers(DataManager dataManager) {
+        playersLock.readLock().lock();
+
+        try {
+            List<Player> players;
+
+            synchronized (this.players) {
+                players = new ArrayList<>(this.players);
+            }
+
+            List<Player> snapshot = new ArrayList<>(players.size());
+
+            for(Player player : players){
+                synchronized (player) {
+                    List<Score> scores = new ArrayList<>(player.getScores());
+
+                    if(dataManager != null && !pendingDataManagers.isEmpty())
+                        scores.removeIf(score -> pendingDataManagers.get(score) == dataManager);
+
+                    snapshot.add(new Player(player.getName(), FXCollections.observableArrayList(scores)));
+                }
+            }
+
+            return snapshot;
+        } finally {
+            playersLock.readLock().unlock();
+        }
     }
 
     /**
@@ -148,4 +633,55 @@ public class Manager {
     public List<Theme> getThemes() {
         return Collections.unmodifiableList(themes);
     }
+
+    /**
+     * Score waiting to be saved <br>
+     * Note : the name of the player and the save are set once it is added to a player (@see addPendingScore())
+     */
+    private static final class PendingScore {
+        private final DataManager dataManager;
+        private final Score score;
+        private String playerName;
+        private CompletableFuture<Void> save;
+
+        private PendingScore(DataManager dataManager, Score score) {
+            this.dataManager = dataManager;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Apply the changes of the watched folders to the themes
+     */
+    private final class ThemesUpdater implements ThemeWatcher.Listener {
+
+        @Override
+        public void themeCreated(URI folder) {
+            LOGGER.log(Level.INFO, "New theme found in " + folder);
+
+            addTheme(new Theme(ResourceFinder.getFolderName(folder), folder));
+        }
+
+        @Override
+        public void themeDeleted(URI folder) {
+            LOGGER.log(Level.INFO, "Theme removed from " + folder);
+
+            themes.removeIf(x -> folder.equals(x.getFolder()));
+
+            //Only the images of this theme are dropped
+            ImageCache.getInstance().invalidate(folder);
+        }
+
+        @Override
+        public void themeModified(URI folder, URI file) {
+            Theme theme = findTheme(folder);
+
+            if(theme == null)
+                return;
+
+            //The images will be looked for again the next time the theme is used
+            theme.invalidate();
+            ImageCache.getInstance().invalidate(file == null ? folder : file);
+        }
+    }
 }
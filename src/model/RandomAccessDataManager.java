@@ -0,0 +1,26 @@
+package model;
+
+/**
+ * RandomAccessDataManager model interface
+ *
+ * A data manager able to read a part of the saved data without loading all the players. <br>
+ * It is meant for views which only display a few scores at a time (eg. a page of the leaderboard).
+ *
+ * @author lturpinat
+ */
+public interface RandomAccessDataManager extends DataManager {
+
+    /**
+     * Get the number of scores saved, all players included
+     * @return number of scores
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    int getScoresCount() throws DataLoadingException;
+
+    /**
+     * Get the saved scores as they are stored, to sort or filter them without loading them (@see {@link LazyScoresList})
+     * @return the scores saved when the store is taken
+     * @throws DataLoadingException if anything goes wrong while loading data
+     */
+    ScoresStore getScoresStore() throws DataLoadingException;
+}
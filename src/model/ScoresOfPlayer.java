@@ -21,7 +21,11 @@ public class ScoresOfPlayer {
     private final ObjectProperty<Integer> boardConfigWidth = new SimpleObjectProperty<>();
 
     public ScoresOfPlayer(Score score, Player player) {
-        setPlayerName(player.getName());
+        this(score, player.getName());
+    }
+
+    public ScoresOfPlayer(Score score, String playerName) {
+        setPlayerName(playerName);
         setScoreDate(score.getDate());
         setScoreDuration(TimeUtils.millisToShortDHMS(score.getDuration().toMillis()));
         setScoreErrorRatio(score.getErrorRation());
@@ -0,0 +1,50 @@
+package model;
+
+/**
+ * ScoresStore model interface
+ *
+ * Read-only access to the fields of the scores by index, without creating any object per score. <br>
+ * It is meant to sort and filter a large number of scores where they are stored (@see {@link LazyScoresList}),
+ * only the displayed scores being turned into {@link ScoresOfPlayer}. <br>
+ * Note : the scores of a store never change, a new store has to be taken to read new scores
+ *
+ * @author lturpinat
+ */
+public interface ScoresStore {
+
+    /**
+     * Get the number of scores, all players included
+     * @return number of scores
+     */
+    int getScoresCount();
+
+    /**
+     * Get the number of players
+     * @return number of players
+     */
+    int getPlayersCount();
+
+    /**
+     * Get the name of a player
+     * @param playerIndex index of the player (0 <= playerIndex < getPlayersCount())
+     * @return name of the player
+     */
+    String getPlayerName(int playerIndex);
+
+    /**
+     * Get the player who made a score
+     * @param scoreIndex index of the score (0 <= scoreIndex < getScoresCount())
+     * @return index of the player
+     */
+    int getPlayerIndex(int scoreIndex);
+
+    long getEpochDay(int scoreIndex);
+
+    long getDurationMillis(int scoreIndex);
+
+    int getHeight(int scoreIndex);
+
+    int getWidth(int scoreIndex);
+
+    double getErrorRatio(int scoreIndex);
+}
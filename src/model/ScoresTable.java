@@ -0,0 +1,94 @@
+package model;
+
+import java.util.List;
+
+/**
+ * In-memory {@link ScoresStore}, storing each field of the scores in its own array <br>
+ * Note : a score only takes a few dozens of bytes, instead of the several objects of a {@link Score}
+ *
+ * @author lturpinat
+ */
+public final class ScoresTable implements ScoresStore {
+
+    private final String[] playerNames;
+
+    private final int[] playerIndexes;
+    private final long[] epochDays;
+    private final long[] durations;
+    private final int[] heights;
+    private final int[] widths;
+    private final double[] errorRatios;
+
+    private ScoresTable(int playersCount, int scoresCount) {
+        playerNames = new String[playersCount];
+
+        playerIndexes = new int[scoresCount];
+        epochDays = new long[scoresCount];
+        durations = new long[scoresCount];
+        heights = new int[scoresCount];
+        widths = new int[scoresCount];
+        errorRatios = new double[scoresCount];
+    }
+
+    /**
+     * Copy the scores of the players
+     * @param players players whose scores are copied, in order
+     * @return the scores of the players
+     */
+    public static ScoresTable of(List<Player> players) {
+        int scoresCount = 0;
+
+        for(Player player : players)
+            scoresCount += player.getScores().size();
+
+        ScoresTable table = new ScoresTable(players.size(), scoresCount);
+        int scoreIndex = 0;
+
+        for(int playerIndex = 0; playerIndex < players.size(); playerIndex++){
+            Player player = players.get(playerIndex);
+            table.playerNames[playerIndex] = player.getName();
+
+            for(Score score : player.getScores()){
+                table.playerIndexes[scoreIndex] = playerIndex;
+                table.epochDays[scoreIndex] = score.getDate().toEpochDay();
+                table.durations[scoreIndex] = score.getDuration().toMillis();
+                table.heights[scoreIndex] = score.getBoardConfiguration().getHeight();
+                table.widths[scoreIndex] = score.getBoardConfiguration().getWidth();
+                table.errorRatios[scoreIndex] = score.getErrorRation();
+
+                scoreIndex++;
+            }
+        }
+
+        return table;
+    }
+
+    //<editor-fold desc="ScoresStore">
+    @Override
+    public int getScoresCount() { return playerIndexes.length; }
+
+    @Override
+    public int getPlayersCount() { return playerNames.length; }
+
+    @Override
+    public String getPlayerName(int playerIndex) { return playerNames[playerIndex]; }
+
+    @Override
+    public int getPlayerIndex(int scoreIndex) { return playerIndexes[scoreIndex]; }
+
+    @Override
+    public long getEpochDay(int scoreIndex) { return epochDays[scoreIndex]; }
+
+    @Override
+    public long getDurationMillis(int scoreIndex) { return durations[scoreIndex]; }
+
+    @Override
+    public int getHeight(int scoreIndex) { return heights[scoreIndex]; }
+
+    @Override
+    public int getWidth(int scoreIndex) { return widths[scoreIndex]; }
+
+    @Override
+    public double getErrorRatio(int scoreIndex) { return errorRatios[scoreIndex]; }
+    //</editor-fold>
+}
@@ -4,6 +4,7 @@ import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
+import utils.ResourceFinder;
 
 import java.net.URI;
 import java.util.List;
@@ -11,7 +12,9 @@ import java.util.List;
 /**
  * Theme model object <br>
  *
- * Describe the visual theme of the cards
+ * Describe the visual theme of the cards <br>
+ * A theme can be created from its folder only : its images are then resolved the first time they are accessed,
+ * so that listing themes stays cheap whatever the number of themes.
  *
  * @author lturpinat
  */
@@ -25,11 +28,88 @@ public class Theme {
 
     private final ObjectProperty<URI> background = new SimpleObjectProperty<>();
 
+    private final URI folder;
+
+    private boolean resolved;
+
     public Theme(String name, List<URI> cards, URI hiddenCard, URI background) {
         setName(name);
         setCards(cards);
         setHiddenCard(hiddenCard);
         setBackground(background);
+
+        folder = null;
+        resolved = true;
+    }
+
+    /**
+     * Create a theme whose images will be resolved from its folder on first access
+     * @param name name of the theme
+     * @param folder folder containing the images of the theme
+     */
+    public Theme(String name, URI folder) {
+        setName(name);
+
+        this.folder = folder;
+    }
+
+    /**
+     * Look for the images of the theme in its folder, if it hasn't been done yet <br>
+     * Note : if the folder cannot be read, the theme is resolved without any image, so that it cannot be played until
+     * its folder changes (@see invalidate())
+     */
+    private synchronized void resolve() {
+        if(resolved)
+            return;
+
+        ResourceFinder.resolveTheme(this);
+        resolved = true;
+    }
+
+    /**
+     * Forget the resolved images so that they are looked for again on next access (eg. the folder has changed) <br>
+     * Note : a theme created from its images is left untouched
+     */
+    public synchronized void invalidate() {
+        if(folder != null)
+            resolved = false;
+    }
+
+    /**
+     * Get the folder of the theme
+     * @return folder of the theme or null if the theme has been created from its images
+     */
+    public URI getFolder() {
+        return folder;
+    }
+
+    /**
+     * Check if the theme matches the minimal configuration of the game : enough cards for the smallest grid, a hidden
+     * card and a background image
+     * @return true if the theme can be chosen
+     */
+    public boolean isPlayable() {
+        return getHiddenCard() != null && getBackground() != null && getCards().size() >= Constants.MINIMAL_DECK_SIZE;
+    }
+
+    /**
+     * Check if the theme has enough different cards to fill a grid <br>
+     * Note : a theme without hidden card or background image (eg. its folder couldn't be read) cannot be played
+     * @param height height of the grid
+     * @param width width of the grid
+     * @param occurrences occurrences of each card in the grid
+     * @return true if the grid can be played with this theme
+     */
+    public boolean canPlay(int height, int width, int occurrences) {
+        long requiredCards = (long) height * width;
+
+        if(getHiddenCard() == null || getBackground() == null)
+            return false;
+
+        if(occurrences < Constants.MINIMAL_CARD_OCCURRENCES || requiredCards % occurrences != 0)
+            return false;
+
+        return requiredCards / occurrences <= getCards().size();
     }
 
     @Override
@@ -46,31 +126,39 @@ public class Theme {
         return name;
     }
 
-    public List<URI> getCards() { return cards.get(); }
+    public List<URI> getCards() {
+        resolve();
+        return cards.get();
+    }
     public void setCards(List<URI> cards) {
         this.cards.set(cards);
     }
     public ObjectProperty<List<URI>> cardsProperty() {
+        resolve();
         return cards;
     }
 
     public URI getHiddenCard() {
+        resolve();
         return hiddenCard.get();
     }
     public void setHiddenCard(URI hiddenCard) {
         this.hiddenCard.set(hiddenCard);
     }
     public ObjectProperty<URI> hiddenCardProperty() {
+        resolve();
         return hiddenCard;
     }
 
     public URI getBackground() {
+        resolve();
         return background.get();
     }
     public void setBackground(URI background) {
         this.background.set(background);
     }
     public ObjectProperty<URI> backgroundProperty() {
+        resolve();
         return background;
     }
     //</editor-fold>
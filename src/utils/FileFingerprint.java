@@ -0,0 +1,77 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Fingerprint of a file, made of its size, its last modification time and its file key <br>
+ * Two fingerprints of the same file differ as soon as the file has been modified or replaced (eg. by an atomic move,
+ * which changes the file key on most file systems), so that a file can be read again only when it has changed.
+ *
+ * @author lturpinat
+ */
+public final class FileFingerprint {
+
+    private final long size;
+    private final long lastModified;
+    private final Object fileKey;
+
+    private FileFingerprint(long size, long lastModified, Object fileKey) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Take the fingerprint of a file
+     * @param file file to fingerprint
+     * @return the fingerprint or null if the file doesn't exist
+     * @throws IOException if the attributes of the file cannot be read
+     */
+    public static FileFingerprint of(File file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+
+            return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the file may have been appended since this fingerprint : same file, not shrunk
+     * @param other later fingerprint of the file
+     * @return true if the file is the same and at least as large
+     */
+    public boolean isSameFile(FileFingerprint other) {
+        return other != null && fileKey != null && fileKey.equals(other.fileKey) && other.size >= size;
+    }
+
+    /**
+     * Get the size of the file when it was fingerprinted
+     * @return size, in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof FileFingerprint))
+            return false;
+
+        FileFingerprint that = (FileFingerprint) o;
+        return size == that.size && lastModified == that.lastModified && Objects.equals(fileKey, that.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, fileKey);
+    }
+}
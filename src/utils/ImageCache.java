@@ -0,0 +1,298 @@
+package utils;
+
+import javafx.scene.image.Image;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static model.Constants.*;
+
+/**
+ * Cache of decoded theme images <br>
+ *
+ * Images are keyed by URI and requested size, and shared across boards so that a theme is only decoded once. <br>
+ * The cache is bounded by a memory budget (estimated as 4 bytes per decoded pixel): when it is exceeded,
+ * the least recently used images are evicted. <br>
+ * Images can be decoded in the background with {@link #preload(Collection, int, int, DoubleConsumer)}.
+ *
+ * @author lturpinat
+ */
+public final class ImageCache {
+
+    private static final ImageCache INSTANCE = new ImageCache(Long.getLong(IMAGE_CACHE_BUDGET_PROPERTY, DEFAULT_IMAGE_CACHE_BUDGET));
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Size meaning that an image is decoded at its original size
+     */
+    public static final int ORIGINAL_SIZE = 0;
+
+    /**
+     * Background threads decoding the preloaded images <br>
+     * Note : they are daemon threads so that they never prevent the application from stopping
+     */
+    private static final ExecutorService DECODING_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "image-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final static Logger LOGGER = Logger.getLogger(ImageCache.class.getName());
+
+    /**
+     * Cached images in access order (the eldest entry is the least recently used one)
+     */
+    private final LinkedHashMap<Key, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long budget;
+
+    private long usedBytes;
+
+    /**
+     * Construct a cache bounded by a memory budget
+     * @param budget maximal memory used by the decoded images, in bytes
+     */
+    public ImageCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Get the cache shared across the application
+     * @return shared cache
+     */
+    public static ImageCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get an image at its original size, decoding it only if it isn't cached yet
+     * @param uri location of the image
+     * @return decoded image
+     */
+    public Image getImage(URI uri) {
+        return getImage(uri, 0, 0);
+    }
+
+    /**
+     * Get an image decoded at the requested size, decoding it only if it isn't cached yet <br>
+     * Note : the ratio of the image is preserved, a dimension of 0 means that it isn't constrained
+     * @param uri location of the image
+     * @param requestedWidth width of the decoded image
+     * @param requestedHeight height of the decoded image
+     * @return decoded image
+     */
+    public Image getImage(URI uri, int requestedWidth, int requestedHeight) {
+        Key key = new Key(uri, requestedWidth, requestedHeight);
+
+        synchronized (this) {
+            Image image = images.get(key);
+
+            if (image != null)
+                return image;
+        }
+
+        //Decode outside of the lock so that other images can be served meanwhile
+        Image image = new Image(uri.toString(), requestedWidth, requestedHeight, true, true);
+
+        if (image.isError()) {
+            LOGGER.log(Level.WARNING, "Couldn't decode " + uri + " !", image.getException());
+            return image;
+        }
+
+        synchronized (this) {
+            //Another thread may have decoded the same image meanwhile
+            Image cached = images.get(key);
+
+            if (cached != null)
+                return cached;
+
+            images.put(key, image);
+            usedBytes += sizeOf(image);
+
+            evict();
+        }
+
+        return image;
+    }
+
+    /**
+     * Round a displayed size up to the size at which the images should be decoded <br>
+     * Sizes are powers of two, so that an image is only decoded again when its displayed size doubles
+     * @param displayedSize size of the displayed image, in pixels
+     * @return size at which the image should be decoded, or {@code ORIGINAL_SIZE} if it is too large to be downscaled
+     */
+    public static int sizeTier(double displayedSize) {
+        if (displayedSize > MAXIMAL_CARD_IMAGE_SIZE)
+            return ORIGINAL_SIZE;
+
+        int tier = MINIMAL_CARD_IMAGE_SIZE;
+
+        while (tier < displayedSize)
+            tier *= 2;
+
+        return tier;
+    }
+
+    /**
+     * Check if a size tier is larger than another one
+     * @param tier size tier, see {@link #sizeTier(double)}
+     * @param otherTier size tier compared to
+     * @return true if {@code tier} describes larger images than {@code otherTier}
+     */
+    public static boolean isLargerTier(int tier, int otherTier) {
+        if (otherTier == ORIGINAL_SIZE)
+            return false;
+
+        return tier == ORIGINAL_SIZE || tier > otherTier;
+    }
+
+    /**
+     * Decode images in the background, so that they are cached when they are needed <br>
+     * Note : cancelling the returned future skips the images whose decoding hasn't started yet
+     * @param uris locations of the images
+     * @param requestedWidth width of the decoded images
+     * @param requestedHeight height of the decoded images
+     * @param progress notified from the decoding threads with the fraction of images ready (from 0 to 1), may be null
+     * @return a future completed once all the images are decoded, or exceptionally if one of them couldn't be decoded
+     */
+    public CompletableFuture<Void> preload(Collection<URI> uris, int requestedWidth, int requestedHeight, DoubleConsumer progress) {
+        CompletableFuture<Void> preloading = new CompletableFuture<>();
+        AtomicInteger decoded = new AtomicInteger();
+        int total = uris.size();
+
+        CompletableFuture<?>[] decodings = uris.stream()
+                .map(uri -> CompletableFuture.runAsync(() -> {
+                    //The images aren't needed anymore (eg. another setup has been selected)
+                    if (preloading.isCancelled())
+                        return;
+
+                    //An image which cannot be decoded fails the preloading, instead of being displayed empty
+                    Image image = getImage(uri, requestedWidth, requestedHeight);
+
+                    if (image.isError())
+                        throw new IllegalStateException("Couldn't decode " + uri + " !", image.getException());
+
+                    if (progress != null)
+                        progress.accept((double) decoded.incrementAndGet() / total);
+                }, DECODING_EXECUTOR))
+                .toArray(CompletableFuture<?>[]::new);
+
+        if (total == 0 && progress != null)
+            progress.accept(1);
+
+        CompletableFuture.allOf(decodings).whenComplete((ignored, error) -> {
+            if (error == null)
+                preloading.complete(null);
+            else
+                preloading.completeExceptionally(error);
+        });
+
+        return preloading;
+    }
+
+    /**
+     * Check if an image is cached, without decoding it
+     * @param uri location of the image
+     * @param requestedWidth width of the decoded image
+     * @param requestedHeight height of the decoded image
+     * @return true if the image is cached
+     */
+    public synchronized boolean contains(URI uri, int requestedWidth, int requestedHeight) {
+        return images.containsKey(new Key(uri, requestedWidth, requestedHeight));
+    }
+
+    /**
+     * Remove the cached images of a location, whatever their size
+     * @param location location of an image, or of a folder (ending with "/") to remove all the images it contains
+     */
+    public synchronized void invalidate(URI location) {
+        String prefix = location.toString();
+        boolean folder = prefix.endsWith("/");
+
+        images.entrySet().removeIf(entry -> {
+            String uri = entry.getKey().uri.toString();
+
+            if (folder ? !uri.startsWith(prefix) : !uri.equals(prefix))
+                return false;
+
+            usedBytes -= sizeOf(entry.getValue());
+            return true;
+        });
+    }
+
+    /**
+     * Remove all the cached images
+     */
+    public synchronized void clear() {
+        images.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Get the memory used by the cached images
+     * @return estimated memory, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Remove the least recently used images until the budget is respected <br>
+     * Note : the most recent image is always kept, even if it exceeds the budget by itself
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Image>> iterator = images.entrySet().iterator();
+
+        while (usedBytes > budget && images.size() > 1) {
+            usedBytes -= sizeOf(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Key of a cached image
+     */
+    private static final class Key {
+        private final URI uri;
+        private final int width, height;
+
+        private Key(URI uri, int width, int height) {
+            this.uri = uri;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return width == key.width && height == key.height && uri.equals(key.uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, width, height);
+        }
+    }
+}
@@ -2,12 +2,20 @@ package utils;
 
 import model.Theme;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static model.Constants.*;
 
@@ -18,68 +26,191 @@ import static model.Constants.*;
  */
 public final class ResourceFinder {
 
+    /**
+     * Any file which have one of the extensions of {@code AVAILABLE_IMAGE_EXTENSIONS}
+     */
+    private static final Pattern IMAGE_PATTERN = Pattern.compile(IMAGE_REGEX_STRING);
+
+    private static final Pattern BACKGROUND_PATTERN = fileNamePattern(IMAGE_BACKGROUND_FILENAME);
+
+    private static final Pattern HIDDEN_CARD_PATTERN = fileNamePattern(HIDDEN_CARD_FILENAME);
+
+    private final static Logger LOGGER = Logger.getLogger(ResourceFinder.class.getName());
+
+    /**
+     * Index of the analysed theme folders, loaded on first use
+     */
+    private static ThemeIndex themeIndex;
+
     private ResourceFinder(){}
 
     /**
-     * Return a list of themes <br>
+     * Return a list of themes whose images are only resolved when they are accessed <br>
+     * Only the folders are listed, so it is cheap whatever the number of themes
      * @param resourceDirectoryPath directory where the themes are stored
-     * @return the themes recognized in {@code resourceDirectoryPath}
-     * @throws NullPointerException if reading directories or images fail
+     * @return one lazy theme per folder of {@code resourceDirectoryPath}
+     * @throws NullPointerException if reading the directory fails
      */
-    public static List<Theme> getAvailableThemes(URI resourceDirectoryPath){
-        File file = new File(resourceDirectoryPath);
+    public static List<Theme> getThemeDescriptors(URI resourceDirectoryPath){
+        Path resourceDirectory = Paths.get(resourceDirectoryPath);
 
-        if(file.isFile())
+        if(Files.isRegularFile(resourceDirectory))
             return null;
 
-        List<Theme> themes = new ArrayList<>();
+        return listDirectories(resourceDirectory).stream()
+                .map(directory -> new Theme(getFolderName(directory.toUri()), directory.toUri()))
+                .collect(Collectors.toList());
+    }
 
-        //Get all directories from the resourcePath directory
-        File[] directories = file.listFiles(File::isDirectory);
+    /**
+     * Get the name of a theme from its folder
+     * @param folder folder of the theme
+     * @return the folder name
+     */
+    public static String getFolderName(URI folder){
+        return Paths.get(folder).getFileName().toString();
+    }
 
-        //Get all resources folders
-        for(File potentialTheme : directories){
-            //Check for the files' extension (@see checkImageFileExtension())
-            File[] files = potentialTheme.listFiles((filenameFilter, source) ->
-                    checkImageFileExtension(new File(filenameFilter, source).getName()));
+    /**
+     * Resolve the images of a lazy theme from its folder <br>
+     * If the folder cannot be read, the theme is left without any image so that it cannot be played <br>
+     * Note : the index is saved a while later, once for all the themes resolved meanwhile (@see {@link ThemeIndex#saveLater()})
+     * @param theme theme created from its folder (@see getThemeDescriptors())
+     */
+    public static void resolveTheme(Theme theme){
+        Path folder = Paths.get(theme.getFolder());
+        ThemeIndex index = getThemeIndex();
+
+        try {
+            Theme foundTheme = getIndexedTheme(folder, index);
+            index.saveLater();
+
+            theme.setCards(foundTheme.getCards());
+            theme.setHiddenCard(foundTheme.getHiddenCard());
+            theme.setBackground(foundTheme.getBackground());
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't read the theme folder " + folder + ", it cannot be played.", e);
+            theme.setCards(new ArrayList<>());
+            theme.setHiddenCard(null);
+            theme.setBackground(null);
+        }
+    }
+
+    /**
+     * Resolve lazy themes in the background, so that their images are already known when they are used <br>
+     * Theme folders are scanned in parallel. Folders which haven't changed since the last launch are read from
+     * the theme index instead of being scanned again (@see {@code THEME_INDEX_FILE_NAME} in {@link model.Constants}),
+     * which is saved once all the themes are resolved
+     * @param themes themes created from their folders (@see getThemeDescriptors())
+     * @return a future completed once the themes are resolved
+     */
+    public static CompletableFuture<Void> resolveThemesAsync(List<Theme> themes){
+        return CompletableFuture.runAsync(() -> {
+            //Resolved on first access (@see Theme), unless the theme has already been used meanwhile
+            themes.parallelStream().forEach(Theme::getCards);
 
-            if (files.length < MINIMAL_DECK_SIZE)//We need a theme that matches the minimal configuration of the game
-                continue;
+            getThemeIndex().save();
+        });
+    }
 
-            //Only cards' images
-            List<URI> images = new ArrayList<>();
+    /**
+     * Get all directories from a directory
+     * @param directory directory to list
+     * @return the sub directories
+     * @throws NullPointerException if reading the directory fails
+     */
+    private static List<Path> listDirectories(Path directory){
+        List<Path> directories = new ArrayList<>();
 
-            URI backgroundImage = findImageByName(files, IMAGE_BACKGROUND_FILENAME);
-            URI hiddenCardImage = findImageByName(files, HIDDEN_CARD_FILENAME);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            stream.forEach(directories::add);
+        } catch (IOException e) {
+            throw new NullPointerException("Cannot read the themes directory " + directory + " : " + e.getMessage());
+        }
 
-            Arrays.stream(files).forEach(x -> {
-                //Prevent from inserting background and hidden card images (named "-1" and "0")
-                if(!(x.getName().startsWith(IMAGE_BACKGROUND_FILENAME) || x.getName().startsWith(HIDDEN_CARD_FILENAME)))
-                    images.add(x.toURI());
-            });
+        return directories;
+    }
 
-            themes.add(new Theme(potentialTheme.getName(), images, hiddenCardImage, backgroundImage));
+    private static synchronized ThemeIndex getThemeIndex(){
+        if(themeIndex == null)
+            themeIndex = ThemeIndex.load(Paths.get(THEME_INDEX_FILE_NAME));
+
+        return themeIndex;
+    }
+
+    /**
+     * Return the theme contained in a folder, from the index if the folder hasn't changed
+     * @param potentialTheme folder to analyse
+     * @param index index of the already analysed folders
+     * @return the theme of the folder, which can have no cards
+     * @throws IOException if the folder cannot be read
+     */
+    private static Theme getIndexedTheme(Path potentialTheme, ThemeIndex index) throws IOException {
+        long modificationTime = Files.getLastModifiedTime(potentialTheme).toMillis();
+        Theme theme = index.get(potentialTheme, modificationTime);
+
+        if(theme == null){
+            theme = scanTheme(potentialTheme);
+            index.put(potentialTheme, modificationTime, theme);
+        }
+
+        return theme;
+    }
+
+    /**
+     * Analyse the images of a theme folder
+     * @param potentialTheme folder to analyse
+     * @return the theme of the folder, which can have no cards
+     * @throws IOException if the folder cannot be read
+     */
+    private static Theme scanTheme(Path potentialTheme) throws IOException {
+        //Check for the files' extension (@see checkImageFileExtension())
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(potentialTheme,
+                file -> checkImageFileExtension(file.getFileName().toString()) && Files.isRegularFile(file))) {
+            stream.forEach(files::add);
         }
 
-        return themes;
+        //Only cards' images
+        List<URI> images = new ArrayList<>();
+
+        URI backgroundImage = findImageByName(files, BACKGROUND_PATTERN);
+        URI hiddenCardImage = findImageByName(files, HIDDEN_CARD_PATTERN);
+
+        files.forEach(x -> {
+            String name = x.getFileName().toString();
+
+            //Prevent from inserting background and hidden card images (named "-1" and "0")
+            if(!(name.startsWith(IMAGE_BACKGROUND_FILENAME) || name.startsWith(HIDDEN_CARD_FILENAME)))
+                images.add(x.toUri());
+        });
+
+        return new Theme(potentialTheme.getFileName().toString(), images, hiddenCardImage, backgroundImage);
     }
 
     /**
      * Return the image matching the specified name
      * @param imageFiles list of files where to look for the image
-     * @param fileName file name without the extension
+     * @param filePattern pattern of the file name (@see fileNamePattern())
      * @return the URI of the found file or null if not found
      */
-    private static URI findImageByName(File[] imageFiles, String fileName){
-        //Find fileName followed by anything (eg. XY.png)
-        String filePattern = "(" + fileName + ").*";
-
+    private static URI findImageByName(List<Path> imageFiles, Pattern filePattern){
         //Return null if not found
-        File file = Arrays.stream(imageFiles)
-                .filter(image -> Pattern.matches(filePattern, image.getName()))
+        Path file = imageFiles.stream()
+                .filter(image -> filePattern.matcher(image.getFileName().toString()).matches())
                 .findFirst().orElse(null);
 
-        return file == null ? null : file.toURI();
+        return file == null ? null : file.toUri();
+    }
+
+    /**
+     * Compile the pattern of an image file name
+     * @param fileName file name without the extension
+     * @return a pattern matching fileName followed by anything (eg. XY.png)
+     */
+    private static Pattern fileNamePattern(String fileName){
+        return Pattern.compile("(" + Pattern.quote(fileName) + ").*");
     }
 
     /**
@@ -89,6 +220,6 @@ public final class ResourceFinder {
      * @return true if it is an image file
      */
     private static boolean checkImageFileExtension(String fileName){
-        return Pattern.matches(IMAGE_REGEX_STRING, fileName);
+        return IMAGE_PATTERN.matcher(fileName).matches();
     }
 }
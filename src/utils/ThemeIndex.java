@@ -0,0 +1,190 @@
+package utils;
+
+import model.Theme;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of the analysed theme folders, persisted between two launches of the application <br>
+ *
+ * Each theme folder is stored along with its last modification time, so that a folder which hasn't changed
+ * doesn't need to be scanned again. <br>
+ * The index is a text file with one folder per line, each field being separated by a tab : <br>
+ * {@code folder    modificationTime    name    hiddenCard    background    card1    card2...}
+ *
+ * @author lturpinat
+ */
+final class ThemeIndex {
+
+    private static final String SEPARATOR = "\t";
+
+    /**
+     * Delay before saving the index after a change, in milliseconds (@see saveLater())
+     */
+    private static final long SAVE_DELAY = 1000;
+
+    private final static Logger LOGGER = Logger.getLogger(ThemeIndex.class.getName());
+
+    /**
+     * Thread saving the indexes in the background
+     */
+    private static final ScheduledExecutorService SAVING_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "theme-index-saving");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean modified;
+
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    private ThemeIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the index from a file
+     * @param file file of the index
+     * @return the index, which is empty if the file doesn't exist or cannot be read
+     */
+    static ThemeIndex load(Path file) {
+        ThemeIndex index = new ThemeIndex(file);
+
+        if (!Files.isRegularFile(file))
+            return index;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, -1);
+
+                if (fields.length < 5)
+                    continue;
+
+                List<URI> cards = new ArrayList<>();
+
+                for (int i = 5; i < fields.length; i++)
+                    cards.add(URI.create(fields[i]));
+
+                index.entries.put(fields[0], new Entry(Long.parseLong(fields[1]),
+                        new Theme(fields[2], cards, toUri(fields[3]), toUri(fields[4]))));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            //The index is only a cache : the themes will be scanned again
+            LOGGER.log(Level.WARNING, "Couldn't read the theme index " + file + ", themes will be scanned again.", e);
+            index.entries.clear();
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the theme of a folder, if the folder hasn't changed since it was indexed
+     * @param folder theme folder
+     * @param modificationTime current modification time of the folder
+     * @return the indexed theme or null if the folder must be scanned
+     */
+    Theme get(Path folder, long modificationTime) {
+        Entry entry = entries.get(folder.toUri().toString());
+
+        return entry != null && entry.modificationTime == modificationTime ? entry.theme : null;
+    }
+
+    /**
+     * Index the theme of a folder
+     * @param folder theme folder
+     * @param modificationTime modification time of the folder when it was scanned
+     * @param theme theme found in the folder
+     */
+    void put(Path folder, long modificationTime, Theme theme) {
+        entries.put(folder.toUri().toString(), new Entry(modificationTime, theme));
+        modified = true;
+    }
+
+    /**
+     * Save the index in the background, if it has been modified <br>
+     * The save is delayed, so that the themes resolved one after the other (eg. while browsing the themes) are all
+     * written at once instead of rewriting the whole index for each of them
+     */
+    void saveLater() {
+        if (modified && saveScheduled.compareAndSet(false, true)) {
+            SAVING_EXECUTOR.schedule(() -> {
+                saveScheduled.set(false);
+                save();
+            }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save the index if it has been modified since it was loaded <br>
+     * Note : the index is written in a temporary file first, so that a crash never leaves a partial index
+     */
+    synchronized void save() {
+        if (!modified)
+            return;
+
+        //Reset first, so that an entry put while writing is saved next time
+        modified = false;
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    Theme theme = entry.getValue().theme;
+
+                    writer.write(String.join(SEPARATOR, entry.getKey(), Long.toString(entry.getValue().modificationTime),
+                            theme.getName(), toString(theme.getHiddenCard()), toString(theme.getBackground())));
+
+                    for (URI card : theme.getCards())
+                        writer.write(SEPARATOR + card);
+
+                    writer.newLine();
+                }
+            }
+
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            modified = true;
+            LOGGER.log(Level.WARNING, "Couldn't save the theme index " + file + ".", e);
+        }
+    }
+
+    private static URI toUri(String field) {
+        return field.isEmpty() ? null : URI.create(field);
+    }
+
+    private static String toString(URI uri) {
+        return uri == null ? "" : uri.toString();
+    }
+
+    private static final class Entry {
+        private final long modificationTime;
+        private final Theme theme;
+
+        private Entry(long modificationTime, Theme theme) {
+            this.modificationTime = modificationTime;
+            this.theme = theme;
+        }
+    }
+}
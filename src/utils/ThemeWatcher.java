@@ -0,0 +1,212 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watcher of a themes folder <br>
+ *
+ * The themes folder and each of its theme folders are registered to a {@link WatchService}, so that the changes
+ * are reported one folder at a time instead of rescanning the whole library. <br>
+ * Events are reported to a {@link Listener} from a background daemon thread.
+ *
+ * @author lturpinat
+ */
+public final class ThemeWatcher implements Closeable {
+
+    /**
+     * Receiver of the changes of the watched themes folder <br>
+     * Note : it is notified from the watcher thread
+     */
+    public interface Listener {
+        /**
+         * A theme folder has been created
+         * @param folder folder of the theme
+         */
+        void themeCreated(URI folder);
+
+        /**
+         * A theme folder has been deleted
+         * @param folder folder of the theme
+         */
+        void themeDeleted(URI folder);
+
+        /**
+         * A file of a theme folder has been created, modified or deleted
+         * @param folder folder of the theme
+         * @param file changed file, or null if the changes are unknown (the whole theme must be checked again)
+         */
+        void themeModified(URI folder, URI file);
+    }
+
+    private final static Logger LOGGER = Logger.getLogger(ThemeWatcher.class.getName());
+
+    private final Path themesFolder;
+
+    private final Listener listener;
+
+    private final WatchService watchService;
+
+    /**
+     * Watched theme folders, keyed by their watch key
+     */
+    private final Map<WatchKey, Path> themeFolders = new ConcurrentHashMap<>();
+
+    private final WatchKey themesFolderKey;
+
+    private final Thread thread;
+
+    /**
+     * Start watching a themes folder
+     * @param themesFolderPath folder containing the themes
+     * @param listener receiver of the changes
+     * @throws IOException if the folder cannot be watched
+     */
+    public ThemeWatcher(URI themesFolderPath, Listener listener) throws IOException {
+        this.themesFolder = Paths.get(themesFolderPath);
+        this.listener = listener;
+
+        watchService = themesFolder.getFileSystem().newWatchService();
+        themesFolderKey = themesFolder.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(themesFolder, Files::isDirectory)) {
+            for (Path themeFolder : stream)
+                register(themeFolder);
+        }
+
+        thread = new Thread(this::processEvents, "theme-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(Path themeFolder) throws IOException {
+        themeFolders.put(themeFolder.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), themeFolder);
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    if (key == themesFolderKey)
+                        processThemesFolderEvent(event);
+                    else
+                        processThemeFolderEvent(key, event);
+                } catch (RuntimeException e) {
+                    //A faulty listener shouldn't stop the watch
+                    LOGGER.log(Level.WARNING, "Couldn't process the change of " + event.context() + " !", e);
+                }
+            }
+
+            //The key is invalid once its folder has been deleted
+            if (!key.reset() && key == themesFolderKey) {
+                LOGGER.log(Level.WARNING, "The themes folder " + themesFolder + " is not watched anymore.");
+                return;
+            }
+        }
+    }
+
+    private void processThemesFolderEvent(WatchEvent<?> event) {
+        //Some events were lost : compare the watched folders with the current ones
+        if (event.kind() == OVERFLOW) {
+            synchronizeThemeFolders();
+            return;
+        }
+
+        Path themeFolder = themesFolder.resolve((Path) event.context());
+
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(themeFolder)) {
+            try {
+                register(themeFolder);
+                listener.themeCreated(toFolderUri(themeFolder));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't watch the theme folder " + themeFolder + ", it is ignored.", e);
+            }
+        } else if (event.kind() == ENTRY_DELETE && unregister(themeFolder)) {
+            listener.themeDeleted(toFolderUri(themeFolder));
+        }
+    }
+
+    private void processThemeFolderEvent(WatchKey key, WatchEvent<?> event) {
+        Path themeFolder = themeFolders.get(key);
+
+        if (themeFolder == null)
+            return;
+
+        if (event.kind() == OVERFLOW)
+            listener.themeModified(toFolderUri(themeFolder), null);
+        else
+            listener.themeModified(toFolderUri(themeFolder), themeFolder.resolve((Path) event.context()).toUri());
+    }
+
+    /**
+     * Report the theme folders created or deleted while the events were lost
+     */
+    private void synchronizeThemeFolders() {
+        themeFolders.entrySet().removeIf(entry -> {
+            if (Files.isDirectory(entry.getValue()))
+                return false;
+
+            entry.getKey().cancel();
+            listener.themeDeleted(toFolderUri(entry.getValue()));
+            return true;
+        });
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(themesFolder, Files::isDirectory)) {
+            for (Path themeFolder : stream) {
+                if (themeFolders.containsValue(themeFolder))
+                    continue;
+
+                register(themeFolder);
+                listener.themeCreated(toFolderUri(themeFolder));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't read the themes folder " + themesFolder + " !", e);
+        }
+    }
+
+    private boolean unregister(Path themeFolder) {
+        return themeFolders.entrySet().removeIf(entry -> {
+            if (!entry.getValue().equals(themeFolder))
+                return false;
+
+            entry.getKey().cancel();
+            return true;
+        });
+    }
+
+    /**
+     * Get the URI of a folder which may not exist anymore <br>
+     * Note : {@link Path#toUri()} only ends the URI of existing directories with a "/"
+     */
+    private static URI toFolderUri(Path folder) {
+        String uri = folder.toUri().toString();
+
+        return URI.create(uri.endsWith("/") ? uri : uri + "/");
+    }
+
+    /**
+     * Stop watching the themes folder
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
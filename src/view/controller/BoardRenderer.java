@@ -0,0 +1,47 @@
+package view.controller;
+
+import javafx.scene.Node;
+import model.Card;
+
+/**
+ * BoardRenderer <br>
+ *
+ * Display the cards of a board in the MainView, and report the clicks on them. <br>
+ * Each card is displayed either on its face or on its back (the front card image of the board), only the changed
+ * cards being repainted. <br>
+ * Note : a renderer must only be used from the JavaFX Application Thread
+ *
+ * @author lturpinat
+ */
+interface BoardRenderer {
+
+    /**
+     * Get the node displaying the cards
+     * @return node to put in the view
+     */
+    Node getNode();
+
+    /**
+     * Display a card on its face
+     * @param card card to repaint
+     */
+    void showFace(Card card);
+
+    /**
+     * Display a card on its back
+     * @param card card to repaint
+     */
+    void showBack(Card card);
+
+    /**
+     * Resize all the cards at once
+     * @param cardWidth width of the displayed cards, in pixels
+     * @param cardHeight height of the displayed cards, in pixels
+     */
+    void setCardSize(double cardWidth, double cardHeight);
+
+    /**
+     * Repaint all the cards, once the images of the board have changed (eg. decoded at a new size)
+     */
+    void repaint();
+}
@@ -0,0 +1,289 @@
+package view.controller;
+
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import model.Board;
+import model.Card;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link BoardRenderer} drawing all the cards on a single Canvas <br>
+ *
+ * The board is a single node whatever the number of cards, so that the layout and the CSS passes don't depend on
+ * the size of the board. The clicked card is found from the coordinates of the click, and only the rectangle of a
+ * changed card is drawn again. <br>
+ * The canvas is never larger than the space given to the board (nor than {@code MAXIMAL_CANVAS_SIZE}) : when the
+ * board doesn't fit, only its visible part is drawn and the player scrolls through it. <br>
+ * Note : it is meant for the very large boards (@see {@link model.Constants#DEFAULT_CANVAS_RENDERER_THRESHOLD})
+ *
+ * @author lturpinat
+ */
+final class CanvasBoardRenderer implements BoardRenderer {
+
+    /**
+     * Space around the board, in pixels
+     */
+    private static final double PADDING = 10;
+
+    /**
+     * Space around each card, in pixels
+     */
+    private static final double CARD_MARGIN = 10;
+
+    /**
+     * Largest dimension of the canvas, in pixels <br>
+     * Note : a canvas is backed by a single texture, which cannot exceed the maximal texture size of the GPU
+     */
+    private static final double MAXIMAL_CANVAS_SIZE = 4096;
+
+    private final Board board;
+    private final int width;
+
+    private double cardWidth, cardHeight;
+
+    /**
+     * Size of the whole board, in pixels
+     */
+    private double boardWidth, boardHeight;
+
+    private final Canvas canvas = new Canvas();
+
+    /**
+     * Space given to the board, the canvas being centered in it
+     */
+    private final Pane viewport = new Pane(canvas);
+
+    private final ScrollBar horizontalScrollBar = new ScrollBar();
+    private final ScrollBar verticalScrollBar = new ScrollBar();
+
+    private final BorderPane node = new BorderPane();
+
+    /**
+     * Whether or not each card is displayed on its face, by slot
+     */
+    private final boolean[] facesShown;
+
+    /**
+     * Build the canvas of the cards
+     * @param board board of the cards
+     * @param cards cards of the board, by slot
+     * @param cardWidth initial width of the displayed cards
+     * @param cardHeight initial height of the displayed cards
+     * @param onCardClicked called with the card clicked by the player
+     */
+    CanvasBoardRenderer(Board board, List<Card> cards, double cardWidth, double cardHeight, Consumer<Card> onCardClicked) {
+        this.board = board;
+        this.width = board.getBoardConfiguration().getWidth();
+
+        facesShown = new boolean[cards.size()];
+
+        canvas.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+            int slot = getSlotAt(event.getX() + getOffsetX(), event.getY() + getOffsetY());
+
+            if(slot >= 0)
+                onCardClicked.accept(cards.get(slot));
+        });
+
+        //The viewport fills the space given to the board, whatever the size of the canvas
+        viewport.setMinSize(0, 0);
+        viewport.setPrefSize(0, 0);
+        viewport.widthProperty().addListener((observable, oldValue, newValue) -> layoutCanvas());
+        viewport.heightProperty().addListener((observable, oldValue, newValue) -> layoutCanvas());
+
+        viewport.addEventHandler(ScrollEvent.SCROLL, event -> {
+            scroll(horizontalScrollBar, -event.getDeltaX());
+            scroll(verticalScrollBar, -event.getDeltaY());
+            event.consume();
+        });
+
+        verticalScrollBar.setOrientation(Orientation.VERTICAL);
+        horizontalScrollBar.valueProperty().addListener((observable, oldValue, newValue) -> repaint());
+        verticalScrollBar.valueProperty().addListener((observable, oldValue, newValue) -> repaint());
+
+        node.setCenter(viewport);
+        node.setRight(verticalScrollBar);
+        node.setBottom(horizontalScrollBar);
+
+        setCardSize(cardWidth, cardHeight);
+    }
+
+    @Override
+    public Node getNode() {
+        return node;
+    }
+
+    @Override
+    public void showFace(Card card) {
+        facesShown[card.getSlot()] = true;
+        paint(card.getSlot(), card.getImageFile());
+    }
+
+    @Override
+    public void showBack(Card card) {
+        facesShown[card.getSlot()] = false;
+        paint(card.getSlot(), board.getFrontCardImage());
+    }
+
+    /**
+     * Draw again the visible cards only
+     */
+    @Override
+    public void repaint() {
+        List<Card> cards = board.getCards();
+
+        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        double cellWidth = cardWidth + 2 * CARD_MARGIN, cellHeight = cardHeight + 2 * CARD_MARGIN;
+        int height = (facesShown.length + width - 1) / width;
+
+        int firstColumn = Math.max(0, (int) ((getOffsetX() - PADDING) / cellWidth));
+        int lastColumn = Math.min(width - 1, (int) ((getOffsetX() + canvas.getWidth() - PADDING) / cellWidth));
+        int firstRow = Math.max(0, (int) ((getOffsetY() - PADDING) / cellHeight));
+        int lastRow = Math.min(height - 1, (int) ((getOffsetY() + canvas.getHeight() - PADDING) / cellHeight));
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int slot = row * width + column;
+
+                if(slot < facesShown.length)
+                    paint(slot, facesShown[slot] ? cards.get(slot).getImageFile() : board.getFrontCardImage());
+            }
+        }
+    }
+
+    /**
+     * Compute the size of the board from the size of the cards, then fit the canvas to it
+     */
+    @Override
+    public void setCardSize(double cardWidth, double cardHeight) {
+        this.cardWidth = cardWidth;
+        this.cardHeight = cardHeight;
+
+        int height = (facesShown.length + width - 1) / width;
+
+        boardWidth = 2 * PADDING + width * (cardWidth + 2 * CARD_MARGIN);
+        boardHeight = 2 * PADDING + height * (cardHeight + 2 * CARD_MARGIN);
+
+        //The units of the scroll bars are the pixels of the board
+        horizontalScrollBar.setUnitIncrement(cardWidth + 2 * CARD_MARGIN);
+        verticalScrollBar.setUnitIncrement(cardHeight + 2 * CARD_MARGIN);
+
+        layoutCanvas();
+    }
+
+    /**
+     * Fit the canvas to the part of the board which can be displayed, then draw it again
+     */
+    private void layoutCanvas() {
+        double canvasWidth = Math.min(boardWidth, Math.min(viewport.getWidth(), MAXIMAL_CANVAS_SIZE));
+        double canvasHeight = Math.min(boardHeight, Math.min(viewport.getHeight(), MAXIMAL_CANVAS_SIZE));
+
+        canvas.setWidth(canvasWidth);
+        canvas.setHeight(canvasHeight);
+
+        //Centered like the grid of the other renderer
+        canvas.relocate(Math.max(0, (viewport.getWidth() - canvasWidth) / 2), Math.max(0, (viewport.getHeight() - canvasHeight) / 2));
+
+        fitScrollBar(horizontalScrollBar, boardWidth, canvasWidth);
+        fitScrollBar(verticalScrollBar, boardHeight, canvasHeight);
+
+        repaint();
+    }
+
+    /**
+     * Let a scroll bar go through the hidden part of the board, and only display it if there is one
+     * @param scrollBar scroll bar to fit
+     * @param boardSize size of the board along the scroll bar
+     * @param canvasSize size of the canvas along the scroll bar
+     */
+    private static void fitScrollBar(ScrollBar scrollBar, double boardSize, double canvasSize) {
+        double hiddenSize = Math.max(0, boardSize - canvasSize);
+
+        scrollBar.setMin(0);
+        scrollBar.setMax(hiddenSize);
+        scrollBar.setVisibleAmount(boardSize > 0 ? hiddenSize * canvasSize / boardSize : 0);
+        scrollBar.setBlockIncrement(canvasSize);
+        scrollBar.setValue(Math.min(scrollBar.getValue(), hiddenSize));
+
+        scrollBar.setVisible(hiddenSize > 0);
+        scrollBar.setManaged(hiddenSize > 0);
+    }
+
+    private static void scroll(ScrollBar scrollBar, double delta) {
+        scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), scrollBar.getValue() + delta)));
+    }
+
+    /**
+     * Draw a card in its rectangle only, if it is visible
+     * @param slot slot of the card
+     * @param image face of the card to draw
+     */
+    private void paint(int slot, Image image) {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+
+        double x = getCardX(slot % width) - getOffsetX();
+        double y = getCardY(slot / width) - getOffsetY();
+
+        if(x + cardWidth <= 0 || x >= canvas.getWidth() || y + cardHeight <= 0 || y >= canvas.getHeight())
+            return;
+
+        graphics.clearRect(x, y, cardWidth, cardHeight);
+
+        if(image != null)
+            graphics.drawImage(image, x, y, cardWidth, cardHeight);
+    }
+
+    /**
+     * Find the card under a point of the board
+     * @param x abscissa of the point, from the left of the whole board
+     * @param y ordinate of the point, from the top of the whole board
+     * @return slot of the card or -1 if the point is out of the cards (eg. in a margin)
+     */
+    private int getSlotAt(double x, double y) {
+        int column = (int) Math.floor((x - PADDING) / (cardWidth + 2 * CARD_MARGIN));
+        int row = (int) Math.floor((y - PADDING) / (cardHeight + 2 * CARD_MARGIN));
+
+        if(column < 0 || column >= width || row < 0 || (long) row * width + column >= facesShown.length)
+            return -1;
+
+        //The margins around the cards aren't clickable, like with the ImageViews
+        double cardX = getCardX(column), cardY = getCardY(row);
+
+        if(x < cardX || x >= cardX + cardWidth || y < cardY || y >= cardY + cardHeight)
+            return -1;
+
+        return row * width + column;
+    }
+
+    private double getCardX(int column) {
+        return PADDING + column * (cardWidth + 2 * CARD_MARGIN) + CARD_MARGIN;
+    }
+
+    private double getCardY(int row) {
+        return PADDING + row * (cardHeight + 2 * CARD_MARGIN) + CARD_MARGIN;
+    }
+
+    /**
+     * Part of the board scrolled out on the left, in pixels
+     */
+    private double getOffsetX() {
+        return horizontalScrollBar.getValue();
+    }
+
+    /**
+     * Part of the board scrolled out on the top, in pixels
+     */
+    private double getOffsetY() {
+        return verticalScrollBar.getValue();
+    }
+}
@@ -0,0 +1,118 @@
+package view.controller;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.control.Label;
+import model.Board;
+import utils.TimeUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Clock displaying the time elapsed of all the running boards <br>
+ *
+ * The boards are ticked on the JavaFX pulse by a single AnimationTimer, which only runs while a board is watched. <br>
+ * A label is only updated when the displayed second changes, and a board is forgotten as soon as it ends. <br>
+ * Note : the clock must only be used from the JavaFX Application Thread
+ *
+ * @author lturpinat
+ */
+final class GameClock {
+
+    private static final GameClock INSTANCE = new GameClock();
+
+    private final List<WatchedBoard> watchedBoards = new ArrayList<>();
+
+    private final AnimationTimer animationTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            tick();
+        }
+    };
+
+    private GameClock() {}
+
+    static GameClock getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Display the time elapsed of a running board until it ends
+     * @param board board to watch
+     * @param timeLabel label displaying the time elapsed
+     * @param onEnded called once the board has ended, after it is forgotten
+     */
+    void watch(Board board, Label timeLabel, Runnable onEnded) {
+        watchedBoards.add(new WatchedBoard(board, timeLabel, onEnded));
+
+        //The first board starts the clock
+        if(watchedBoards.size() == 1)
+            animationTimer.start();
+    }
+
+    /**
+     * Forget a board without waiting for it to end (eg. its window is closed)
+     * @param board board watched
+     */
+    void unwatch(Board board) {
+        watchedBoards.removeIf(watchedBoard -> watchedBoard.board == board);
+
+        stopIfIdle();
+    }
+
+    private void tick() {
+        List<WatchedBoard> endedBoards = new ArrayList<>();
+
+        for(Iterator<WatchedBoard> iterator = watchedBoards.iterator(); iterator.hasNext(); ){
+            WatchedBoard watchedBoard = iterator.next();
+
+            //The label is updated one last time, so that it shows the final time
+            watchedBoard.update();
+
+            if(!watchedBoard.board.isRunning()){
+                iterator.remove();
+                endedBoards.add(watchedBoard);
+            }
+        }
+
+        stopIfIdle();
+
+        //Called last, as they may watch new boards
+        endedBoards.forEach(watchedBoard -> watchedBoard.onEnded.run());
+    }
+
+    private void stopIfIdle() {
+        if(watchedBoards.isEmpty())
+            animationTimer.stop();
+    }
+
+    /**
+     * Board watched along with its label
+     */
+    private static final class WatchedBoard {
+        private final Board board;
+        private final Label timeLabel;
+        private final Runnable onEnded;
+
+        /**
+         * Second displayed in the label, -1 if none is displayed yet
+         */
+        private long displayedSecond = -1;
+
+        private WatchedBoard(Board board, Label timeLabel, Runnable onEnded) {
+            this.board = board;
+            this.timeLabel = timeLabel;
+            this.onEnded = onEnded;
+        }
+
+        private void update() {
+            long second = board.getTimeLasted().getSeconds();
+
+            if(second != displayedSecond){
+                displayedSecond = second;
+                timeLabel.setText(TimeUtils.millisToShortDHMS(second * 1000));
+            }
+        }
+    }
+}
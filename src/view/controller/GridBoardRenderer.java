@@ -0,0 +1,118 @@
+package view.controller;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.GridPane;
+import model.Board;
+import model.Card;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link BoardRenderer} displaying each card with its own ImageView in a GridPane <br>
+ * Note : every card being a node of the scene, it is meant for the usual boards (@see {@link CanvasBoardRenderer})
+ *
+ * @author lturpinat
+ */
+final class GridBoardRenderer implements BoardRenderer {
+
+    private final Board board;
+
+    private final GridPane playGridPane;
+
+    /**
+     * ImageView of each card, by slot
+     */
+    private final ImageView[] imageViews;
+
+    /**
+     * Whether or not each card is displayed on its face, by slot
+     */
+    private final boolean[] facesShown;
+
+    /**
+     * Build the grid of the cards
+     * @param board board of the cards
+     * @param cards cards of the board, by slot
+     * @param cardWidth initial width of the displayed cards
+     * @param cardHeight initial height of the displayed cards
+     * @param onCardClicked called with the card clicked by the player
+     */
+    GridBoardRenderer(Board board, List<Card> cards, double cardWidth, double cardHeight, Consumer<Card> onCardClicked) {
+        this.board = board;
+
+        imageViews = new ImageView[cards.size()];
+        facesShown = new boolean[cards.size()];
+
+        //Creation of the grid
+        playGridPane = new GridPane();
+
+        //Setting of a padding for a more friendly user interface
+        playGridPane.setPadding(new Insets(10));
+
+        int width = board.getBoardConfiguration().getWidth();
+
+        //The margin is shared by all the cards
+        Insets cardMargin = new Insets(10);
+
+        for (Card card : cards) {
+            //Create an ImageView with the front image
+            ImageView imageView = new ImageView(board.getFrontCardImage());
+
+            //The size of the card is set again when the window size is modified (@see setCardSize())
+            imageView.setFitWidth(cardWidth);
+            imageView.setFitHeight(cardHeight);
+
+            //Associate the ImageView with an event triggered on click
+            imageView.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> onCardClicked.accept(card));
+
+            //Good layout
+            GridPane.setMargin(imageView, cardMargin);
+
+            //Put the ImageView into the grid, from left to right then top to bottom
+            playGridPane.add(imageView, card.getSlot() % width, card.getSlot() / width);
+
+            imageViews[card.getSlot()] = imageView;
+        }
+
+        //Center the gridpane in the view
+        playGridPane.setAlignment(Pos.CENTER);
+    }
+
+    @Override
+    public Node getNode() {
+        return playGridPane;
+    }
+
+    @Override
+    public void showFace(Card card) {
+        facesShown[card.getSlot()] = true;
+        imageViews[card.getSlot()].setImage(card.getImageFile());
+    }
+
+    @Override
+    public void showBack(Card card) {
+        facesShown[card.getSlot()] = false;
+        imageViews[card.getSlot()].setImage(board.getFrontCardImage());
+    }
+
+    @Override
+    public void setCardSize(double cardWidth, double cardHeight) {
+        for (ImageView imageView : imageViews) {
+            imageView.setFitWidth(cardWidth);
+            imageView.setFitHeight(cardHeight);
+        }
+    }
+
+    @Override
+    public void repaint() {
+        List<Card> cards = board.getCards();
+
+        for (int slot = 0; slot < imageViews.length; slot++)
+            imageViews[slot].setImage(facesShown[slot] ? cards.get(slot).getImageFile() : board.getFrontCardImage());
+    }
+}
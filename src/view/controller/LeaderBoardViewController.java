@@ -1,15 +1,18 @@
 package view.controller;
 
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 import model.*;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Controller to manage the interactions between the model and the LeaderBoardView <br>
@@ -36,12 +39,23 @@ public class LeaderBoardViewController implements Controller {
     @FXML
     private ChoiceBox<DataManager> dataManagerChoiceBox;
     @FXML
+    private ChoiceBox<Display> displayChoiceBox;
+    @FXML
+    private TextField playerFilterTextField;
+    @FXML
+    private ChoiceBox<BoardConfiguration> configurationChoiceBox;
+    @FXML
     private TableColumn<ScoresOfPlayer, Integer> heightColumn = new TableColumn<>("Height");
     @FXML
     private TableColumn<ScoresOfPlayer, Integer> widthColumn = new TableColumn<>("Width");
 
     private Manager manager;
 
+    /**
+     * Best scores of the selected data type, kept up to date by the manager
+     */
+    private LeaderBoardIndex leaderBoard;
+
     public LeaderBoardViewController(Manager manager){
         this.manager = manager;
     }
@@ -75,39 +89,123 @@ public class LeaderBoardViewController implements Controller {
 
     /**
      * @param dataManager Chosen data type
-     * Get the values from the specified type of file
-     * @return An observable List of the data
+     * Get the scores from the specified type of file, as they are stored
+     * @return The scores, empty if they cannot be read
+     */
+    private ScoresStore getFromDataManager(DataManager dataManager){
+        //The scores can be read directly, without going through the players
+        if(dataManager instanceof RandomAccessDataManager){
+            try {
+                return ((RandomAccessDataManager) dataManager).getScoresStore();
+            } catch (DataLoadingException e) {
+                e.printStackTrace();
+                return ScoresTable.of(new ArrayList<>());
+            }
+        }
+
+        //Only the fields of the scores of the loaded players are copied, the rows being created when they are displayed
+        return ScoresTable.of(manager.getPlayers());
+    }
+
+    /**
+     * @param dataManager Chosen data type
+     * Get the best scores of the specified type of file, then list the board configurations they played <br>
+     * The best scores are indexed by the manager as the scores are recorded : the players are only loaded again if they
+     * may have changed (@see {@link Manager#useDataManager(DataManager)}), whatever the number of scores.
      */
-    private List<ScoresOfPlayer> getFromDataManager(DataManager dataManager){
-        //Create an empty List. It will contains all score of players created
-        List<ScoresOfPlayer> scoresOfPlayers = new ArrayList<>();
+    private void loadFromDataManager(DataManager dataManager){
+        //Set the datamanager withe the datamanger pass as argument, and load its players
+        manager.useDataManager(dataManager);
+
+        leaderBoard = manager.getLeaderBoard();
 
-        //Set the datamanager withe the datamanger pass as argument
-        manager.setDataManager(dataManager);
+        //Keep the selected configuration if it has been played with this data type too
+        BoardConfiguration selectedConfiguration = configurationChoiceBox.getValue();
+        List<BoardConfiguration> configurations = leaderBoard.getConfigurations();
 
-        //Load players
-        manager.loadPlayers();
+        configurationChoiceBox.setItems(FXCollections.observableArrayList(configurations));
 
-        //Get players from the specified file
-        List<Player> playerList = manager.getPlayers();
+        BoardConfiguration newConfiguration = configurations.isEmpty() ? null : configurations.get(0);
 
-        //A player can have multiple scores. So to correctly display them, for each score for each
-        //player, we create an unique "ScoreOfPlayer"
-        playerList.forEach(p -> p.getScores().forEach(s -> scoresOfPlayers.add(new ScoresOfPlayer(s, p))));
+        for(BoardConfiguration configuration : configurations){
+            if(selectedConfiguration != null && configuration.getHeight() == selectedConfiguration.getHeight()
+                    && configuration.getWidth() == selectedConfiguration.getWidth())
+                newConfiguration = configuration;
+        }
 
-        return scoresOfPlayers;
+        configurationChoiceBox.setValue(newConfiguration);
     }
 
     /**
-     * @param scoresOfPlayerList List with the elements to display
-     * Clear the tableview then set the elements with those pass as argument
+     * Display the scores selected by the display and configuration choice boxes <br>
+     * Note : the best scores of a configuration are read from the leader board (@see {@link LeaderBoardIndex}),
+     * without going through all the scores
+     */
+    private void refreshScores(){
+        Display display = displayChoiceBox.getValue();
+        BoardConfiguration configuration = configurationChoiceBox.getValue();
+
+        //A configuration is only chosen for the best scores
+        configurationChoiceBox.setDisable(display == Display.ALL_SCORES);
+
+        if(display == Display.ALL_SCORES){
+            //The scores are only materialized when they are displayed
+            LazyScoresList scores = new LazyScoresList(getFromDataManager(dataManagerChoiceBox.getValue()));
+
+            scores.filter(playerFilterTextField.getText());
+            sortLazily(scores);
+
+            displayScoresOfPlayer(scores);
+        }
+        else if(configuration == null)
+            displayScoresOfPlayer(FXCollections.observableArrayList());
+        else {
+            List<ScoresOfPlayer> top = leaderBoard.getTop(configuration.getHeight(), configuration.getWidth(),
+                    display.ranking, Constants.LEADER_BOARD_SIZE);
+
+            String playerFilter = playerFilterTextField.getText() == null ? "" : playerFilterTextField.getText().toLowerCase(Locale.ROOT);
+            top.removeIf(score -> !score.getPlayerName().toLowerCase(Locale.ROOT).contains(playerFilter));
+
+            displayScoresOfPlayer(FXCollections.observableList(top));
+        }
+    }
+
+    /**
+     * Sort the scores of a lazy list on the first column of the sort order of the table <br>
+     * Note : the other lists are small enough (@see {@link Constants#LEADER_BOARD_SIZE}) to be sorted by the table
+     * @param scores scores displayed in the table
      */
-    private void displayScoresOfPlayer(List<ScoresOfPlayer> scoresOfPlayerList){
-        //Clear the table view
-        leaderBoardTableView.getItems().clear();
+    private void sortLazily(LazyScoresList scores){
+        List<TableColumn<ScoresOfPlayer, ?>> sortOrder = leaderBoardTableView.getSortOrder();
+
+        if(sortOrder.isEmpty()){
+            scores.sort(null, true);
+            return;
+        }
 
-        //Add the elements into the table view
-        leaderBoardTableView.setItems(FXCollections.observableList(scoresOfPlayerList));
+        TableColumn<ScoresOfPlayer, ?> column = sortOrder.get(0);
+        boolean ascending = column.getSortType() != TableColumn.SortType.DESCENDING;
+
+        if(column == pseudoColumn)
+            scores.sort(LazyScoresList.Column.PLAYER_NAME, ascending);
+        else if(column == dateColumn)
+            scores.sort(LazyScoresList.Column.DATE, ascending);
+        else if(column == durationColumn)
+            scores.sort(LazyScoresList.Column.DURATION, ascending);
+        else if(column == errorRatioColumn)
+            scores.sort(LazyScoresList.Column.ERROR_RATIO, ascending);
+        else if(column == heightColumn)
+            scores.sort(LazyScoresList.Column.HEIGHT, ascending);
+        else if(column == widthColumn)
+            scores.sort(LazyScoresList.Column.WIDTH, ascending);
+    }
+
+    /**
+     * @param scoresOfPlayerList List with the elements to display
+     * Set the elements of the table view with those pass as argument
+     */
+    private void displayScoresOfPlayer(ObservableList<ScoresOfPlayer> scoresOfPlayerList){
+        leaderBoardTableView.setItems(scoresOfPlayerList);
     }
 
     @FXML
@@ -123,10 +221,37 @@ public class LeaderBoardViewController implements Controller {
 
         //Set default value
         dataManagerChoiceBox.getSelectionModel().select(0);
-        displayScoresOfPlayer(getFromDataManager(dataManagerChoiceBox.getItems().get(0)));
+
+        //The scores can be displayed all together or as the best ones of a board configuration
+        displayChoiceBox.setItems(FXCollections.observableArrayList(Display.values()));
+        displayChoiceBox.setValue(Display.ALL_SCORES);
+        configurationChoiceBox.setConverter(new StringConverter<BoardConfiguration>() {
+            @Override
+            public String toString(BoardConfiguration configuration) {
+                return configuration == null ? "" : configuration.getHeight() + " x " + configuration.getWidth();
+            }
+
+            @Override
+            public BoardConfiguration fromString(String string) {
+                return null;
+            }
+        });
+
+        //The whole history is sorted where it is stored (@see sortLazily()), the table only sorts the best scores
+        leaderBoardTableView.setSortPolicy(table -> {
+            if(!(table.getItems() instanceof LazyScoresList))
+                return TableView.DEFAULT_SORT_POLICY.call(table);
+
+            sortLazily((LazyScoresList) table.getItems());
+            return true;
+        });
+
+        loadFromDataManager(dataManagerChoiceBox.getItems().get(0));
+        refreshScores();
 
         //Create a tooltip for more fun
         dataManagerChoiceBox.setTooltip(new Tooltip("Select a data type"));
+        configurationChoiceBox.setTooltip(new Tooltip("Select a board configuration"));
 
         //Add a listener to display values when we click on a data type
         dataManagerChoiceBox
@@ -134,8 +259,46 @@ public class LeaderBoardViewController implements Controller {
                 .selectedIndexProperty()
                 .addListener((observableValue, oldIndexValue, newIndexValue) -> {
                     //Get the correct DataManager with the new index selected
-                    displayScoresOfPlayer(getFromDataManager(dataManagerChoiceBox.getItems().get((Integer) newIndexValue)));
+                    loadFromDataManager(dataManagerChoiceBox.getItems().get((Integer) newIndexValue));
+                    refreshScores();
                 });
+
+        //Filter the scores as the name of the player is typed
+        playerFilterTextField.textProperty().addListener((observableValue, oldValue, newValue) -> {
+            if(leaderBoardTableView.getItems() instanceof LazyScoresList)
+                ((LazyScoresList) leaderBoardTableView.getItems()).filter(newValue);
+            else
+                refreshScores();
+        });
+
+        //Display the scores again when another display or configuration is chosen
+        displayChoiceBox.valueProperty().addListener((observableValue, oldValue, newValue) -> refreshScores());
+        configurationChoiceBox.valueProperty().addListener((observableValue, oldValue, newValue) -> {
+            //All the scores don't depend on the configuration
+            if(displayChoiceBox.getValue() != Display.ALL_SCORES)
+                refreshScores();
+        });
     }
 
+    /**
+     * Scores displayed in the leader board
+     */
+    private enum Display {
+        ALL_SCORES("All scores", null),
+        BEST_ERROR_RATIO("Best error ratios", LeaderBoardIndex.Ranking.ERROR_RATIO),
+        BEST_DURATION("Best durations", LeaderBoardIndex.Ranking.DURATION);
+
+        private final String label;
+        private final LeaderBoardIndex.Ranking ranking;
+
+        Display(String label, LeaderBoardIndex.Ranking ranking) {
+            this.label = label;
+            this.ranking = ranking;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
 }
\ No newline at end of file
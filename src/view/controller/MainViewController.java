@@ -1,23 +1,26 @@
 package view.controller;
 
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.event.EventHandler;
 import javafx.fxml.FXML;
-import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.control.Label;
-import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.Board;
+import model.BoardConfiguration;
 import model.Card;
 import model.DialogService;
 import model.Manager;
-import utils.TimeUtils;
 
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static model.Constants.CANVAS_RENDERER_THRESHOLD_PROPERTY;
+import static model.Constants.DEFAULT_CANVAS_RENDERER_THRESHOLD;
 
 /**
  * Controller to manage the interactions between the model and the MainView <br>
@@ -27,6 +30,18 @@ import java.util.*;
  */
 public class MainViewController implements Controller {
 
+    /**
+     * Time given to the player to see the cards of a mismatched selection
+     */
+    private static final Duration FLIP_BACK_DELAY = Duration.millis(500);
+
+    /**
+     * Time without any change of the size of the window after which the cards are resized
+     */
+    private static final Duration RESIZE_DEBOUNCE_DELAY = Duration.millis(100);
+
+    private final static Logger LOGGER = Logger.getLogger(MainViewController.class.getName());
+
     @FXML
     private BorderPane mainBorderPane;
     @FXML
@@ -34,11 +49,28 @@ public class MainViewController implements Controller {
     @FXML
     private Label timeLabel;
 
-    private GridPane playGridPane;
+    private BoardRenderer boardRenderer;
+
+    /**
+     * Cards of the last mismatched selection, waiting to be hidden by {@code flipBack}
+     */
+    private final List<Card> mismatchedCards = new ArrayList<>();
 
-    private Map<Card, ImageView> cardImageViewMap = new HashMap<>();
+    /**
+     * Delay before the cards of a mismatched selection are hidden, running on the JavaFX thread <br>
+     * Note : it is stopped as soon as a new selection starts (@see clickOnCard())
+     */
+    private final PauseTransition flipBack = new PauseTransition(FLIP_BACK_DELAY);
 
-    private Timer timer;
+    /**
+     * Delay restarted by each change of the size of the window, the cards being resized when it ends
+     */
+    private final PauseTransition resizeDebounce = new PauseTransition(RESIZE_DEBOUNCE_DELAY);
+
+    /**
+     * Whether or not the Stage has been closed, possibly before the board was prepared
+     */
+    private boolean closed;
 
     private Board board;
     private Manager manager;
@@ -59,53 +91,36 @@ public class MainViewController implements Controller {
 
     /**
      * Build the grid fitted with the correct specification </br>
-     * wanted on the set up view. Each card is load and display thank to </br>
-     * it's own ImageView.
+     * wanted on the set up view. The cards are displayed by a {@link BoardRenderer}, </br>
+     * chosen according to the number of cards.
      *
      * @param cardList The list of cards contains into the board
      */
     private void gridCreation(List<Card> cardList, ReadOnlyDoubleProperty heightProperty, ReadOnlyDoubleProperty widthProperty){
-        //Incremented each time a card is set properly into the grid
-        int cardNumber = 0;
+        //The size of the cards only depends on the window
+        BoardConfiguration boardConfiguration = board.getBoardConfiguration();
+        double cardWidth = getCardWidth(heightProperty.get(), boardConfiguration);
+        double cardHeight = getCardHeight(heightProperty.get(), boardConfiguration);
 
-        //Creation of the grid
-        playGridPane = new GridPane();
+        //Decode the images at the size they are displayed
+        board.fitCardImages(cardWidth, cardHeight);
+        board.frontCardImageProperty().addListener((observable, oldImage, newImage) -> boardRenderer.repaint());
 
-        //Setting of a padding for a more friendly user interface
-        playGridPane.setPadding(new Insets(10));
+        //Beyond a few hundred cards, a node per card makes the layout too slow : the board is drawn on a canvas instead
+        if(cardList.size() >= Integer.getInteger(CANVAS_RENDERER_THRESHOLD_PROPERTY, DEFAULT_CANVAS_RENDERER_THRESHOLD))
+            boardRenderer = new CanvasBoardRenderer(board, cardList, cardWidth, cardHeight, this::clickOnCard);
+        else
+            boardRenderer = new GridBoardRenderer(board, cardList, cardWidth, cardHeight, this::clickOnCard);
 
-        //Iterate threw the cardList
-        for (int i = 0; i < board.getBoardConfiguration().getHeight(); i++) {
+        //While the window is resized, the cards are only resized once it stops changing for a while
+        resizeDebounce.setOnFinished(event -> resizeCards(heightProperty.get()));
+        heightProperty.addListener((observable, oldValue, newValue) -> resizeDebounce.playFromStart());
 
-            for (int k = 0; k < board.getBoardConfiguration().getWidth(); k++) {
-                //Create an ImageView with the front image
-                ImageView imageView = new ImageView(board.getFrontCardImage());
+        //Only the cards changed by a pick are repainted
+        board.addCardsListener(this::repaintCards);
 
-                //Bin the width and the height property to adjust the size of card when the window size is modified
-                imageView.fitWidthProperty().bind(heightProperty.divide(1*(board.getBoardConfiguration().getHeight()+board.getBoardConfiguration().getWidth())));
-                imageView.fitHeightProperty().bind(heightProperty.divide((board.getBoardConfiguration().getHeight()+board.getBoardConfiguration().getWidth())*0.7));
-
-                //Associate the card with his own ImageView
-                cardImageViewMap.put(cardList.get(cardNumber), imageView);
-                //Associate the ImageView with an event triggered on click
-                imageView.addEventHandler(MouseEvent.MOUSE_CLICKED, clickOnCardEventHandler(cardList.get(cardNumber), imageView));
-
-                //Good layout
-                GridPane.setMargin(imageView, new Insets(10));
-
-                //Put the ImageView into the grid
-                playGridPane.add(imageView, k, i);
-
-                //Increment the card number
-                cardNumber += 1;
-            }
-        }
-
-        //Center the gridpane in the view
-        playGridPane.setAlignment(Pos.CENTER);
-
-        //Attach the gridpane to his parent
-        mainBorderPane.setCenter(playGridPane);
+        //Attach the cards to their parent
+        mainBorderPane.setCenter(boardRenderer.getNode());
 
         //Set the background image of the board
         mainBorderPane.setBackground(new Background(new BackgroundImage(
@@ -117,77 +132,103 @@ public class MainViewController implements Controller {
     }
 
     /**
-     * Event Handler to manage the click a card. Each card is associated with </br>
-     * an ImageView. The process set the correct visible face of each card.
+     * Compute the size of the cards once, then resize them all in a single pass <br>
+     * Note : the images are decoded again only if the window grows beyond their decoded size
+     * @param sceneHeight height of the scene
+     */
+    private void resizeCards(double sceneHeight){
+        double cardWidth = getCardWidth(sceneHeight, board.getBoardConfiguration());
+        double cardHeight = getCardHeight(sceneHeight, board.getBoardConfiguration());
+
+        boardRenderer.setCardSize(cardWidth, cardHeight);
+        board.fitCardImages(cardWidth, cardHeight);
+    }
+
+    /**
+     * Get the width of the displayed cards
+     * @param sceneHeight height of the scene
+     * @param boardConfiguration dimensions of the grid
+     * @return width of a card
+     */
+    static double getCardWidth(double sceneHeight, BoardConfiguration boardConfiguration){
+        return sceneHeight / (boardConfiguration.getHeight() + boardConfiguration.getWidth());
+    }
+
+    /**
+     * Get the height of the displayed cards
+     * @param sceneHeight height of the scene
+     * @param boardConfiguration dimensions of the grid
+     * @return height of a card
+     */
+    static double getCardHeight(double sceneHeight, BoardConfiguration boardConfiguration){
+        return sceneHeight / ((boardConfiguration.getHeight() + boardConfiguration.getWidth()) * 0.7);
+    }
+
+    /**
+     * Manage the click on a card. The faces displayed are updated by {@link #repaintCards(Board.CardsChange, List)}.
      *
      * @param card clicked card
-     * @param imageView image associated to the card
-     */
-    private EventHandler clickOnCardEventHandler(Card card, ImageView imageView) {
-        return event -> {
-            //When you click on a card, it's picked by the board
-            board.pickCard(card);
-
-            //Call every effects
-            effects.forEach(x -> x.trigger(card));
-
-            //Launch a new Thread to not affect the UI
-            new Thread(()->
-            {
-                //The ImageView display the correct face of the card
-                imageView.setImage(card.getImageFile());
-
-                //If the array filled of selected cards is empty
-                if(board.getSelectedCards().isEmpty()){
-
-                    //The grid can't be click until the process is not finished
-                    playGridPane.setDisable(true);
-
-                    //Sleep to let the player see the cards
-                    try {
-                        Thread.sleep(500);
-                    }
-                    catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-
-                    //Go threw each Card->ImageView Map
-                    for (Card cardFromMap : cardImageViewMap.keySet())
-                        //If the card is found
-                        if(!cardFromMap.isFound())
-                            //The image view stay on the correct face of the card
-                            cardImageViewMap.get(cardFromMap).setImage(board.getFrontCardImage());
-
-                    //The grid is clickable again
-                    playGridPane.setDisable(false);
-                }
-            }).start();
-        };
+     */
+    private void clickOnCard(Card card) {
+        //A new selection starts while the previous one is still displayed : it is hidden right away
+        //Note : it is hidden before the pick, as the picked card can be one of them, but only if the click counts
+        if(flipBack.getStatus() == Animation.Status.RUNNING && board.canPick(card)){
+            flipBack.stop();
+            hideMismatchedCards();
+        }
+
+        //When you click on a card, it's picked by the board
+        board.pickCard(card);
+
+        //Call every effects
+        effects.forEach(x -> x.trigger(card));
+    }
+
+    /**
+     * Repaint the cards changed by a pick, and only them
+     * @param change what happened to the cards
+     * @param cards changed cards
+     */
+    private void repaintCards(Board.CardsChange change, List<Card> cards){
+        switch (change){
+            case REVEALED:
+                //Display the correct face of the card
+                cards.forEach(boardRenderer::showFace);
+                break;
+            case HIDDEN:
+                //Let the player see the cards before hiding them
+                mismatchedCards.addAll(cards);
+                flipBack.playFromStart();
+                break;
+            case FOUND:
+                //The cards stay on their face
+                break;
+        }
     }
 
     /**
-     * Update the time elapsed label every second with board's lasted time
+     * Hide the cards of the last mismatched selection, all at once
+     */
+    private void hideMismatchedCards(){
+        mismatchedCards.forEach(boardRenderer::showBack);
+        mismatchedCards.clear();
+    }
+
+    /**
+     * Update the time elapsed label with board's lasted time, until the game ends <br>
+     * Note : the label is updated by the clock shared by all the boards (@see {@link GameClock})
      */
     private void updateTimer(){
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                Platform.runLater(() -> {
-                    long seconds = board.getTimeLasted().toMillis();
-                    timeLabel.setText(TimeUtils.millisToShortDHMS(seconds));
-
-                    if(!board.isRunning())
-                        endTheGame();
-                });
-            }
-        }, 0, 1000);
+        GameClock.getInstance().watch(board, timeLabel, this::endTheGame);
     }
 
     /**
-     * When the game is ended, timer is stopped and the winning window is displayed
+     * When the game is ended, the winning window is displayed <br>
+     * Note : the board is no longer watched by the clock once it has ended
      */
     private void endTheGame(){
-        timer.cancel();
+        flipBack.stop();
+        resizeDebounce.stop();
 
         Stage stage = (Stage) errorLabel.getScene().getWindow();
         stage.close();
@@ -195,6 +236,21 @@ public class MainViewController implements Controller {
         DialogService.openWinView(manager, board);
     }
 
+    /**
+     * When the board couldn't be prepared (eg. an image of the theme cannot be decoded), the player goes back to
+     * the set up of the game
+     * @param error cause of the failure
+     */
+    private void cancelTheGame(Throwable error){
+        LOGGER.log(Level.SEVERE, "Couldn't prepare the board !", error);
+
+        Stage stage = (Stage) errorLabel.getScene().getWindow();
+        stage.close();
+
+        DialogService.openSetUpView(manager);
+        DialogService.openPopUpView("The cards of this theme couldn't be loaded !");
+    }
+
     /**
      * Load and initialize effects behaviour into available effects
      */
@@ -206,33 +262,54 @@ public class MainViewController implements Controller {
         //effects.add(printCardID);
     }
 
-    @FXML
-    private void initialize(){
+    /**
+     * Start the game, launch the timer and create the grid <br>
+     * Note : it must be called on the JavaFX thread, once the board is prepared
+     */
+    private void startGame(){
         //Get the cards from the manager
         List<Card> cardList = board.getCards();
 
         //Start the game
         board.startGame();
 
-        //Create the timer
-        timer = new Timer();
-
         //Launch the timer
         updateTimer();
 
+        //Create the grid where the cards are displayed with the size properties to adjust their size
+        gridCreation(cardList, errorLabel.getScene().heightProperty(), errorLabel.getScene().widthProperty());
+    }
+
+    @FXML
+    private void initialize(){
+        //Hide the mismatched cards once the player has seen them
+        flipBack.setOnFinished(event -> hideMismatchedCards());
+
         //Bind the label to the errorsCounterProperty with a specified format
         errorLabel.textProperty().bind(javafx.beans.binding.Bindings.format("Error Counter : %d", board.errorsCounterProperty()));
 
         /*
-          Whenever the Stage is brutally closed, cancel the timer so its thread won't block the full stop of the
-          application.
+          Whenever the Stage is brutally closed, the board is no longer displayed : the clock stops watching it
+          (and stops ticking if no other board is running).
          */
         Platform.runLater(() -> {
             Stage currentStage = (Stage) errorLabel.getScene().getWindow();
-            currentStage.setOnCloseRequest((event) -> timer.cancel());
-
-            //Create the grid where the cards are displayed with the size properties to adjust their size
-            gridCreation(cardList, errorLabel.getScene().heightProperty(), errorLabel.getScene().widthProperty());
+            currentStage.setOnCloseRequest((event) -> {
+                closed = true;
+                GameClock.getInstance().unwatch(board);
+            });
         });
+
+        //The images are decoded in the background : the game starts once they are ready, without freezing the view
+        //Note : if the Stage has been closed meanwhile, the game is never started, so that the clock never watches it
+        board.prepare().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            if(closed)
+                return;
+
+            if(error == null)
+                startGame();
+            else
+                cancelTheGame(error);
+        }));
     }
 }
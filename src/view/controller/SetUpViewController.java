@@ -1,16 +1,25 @@
 package view.controller;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.ChoiceBox;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.*;
+import utils.ImageCache;
+import utils.ResourceFinder;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static model.Constants.*;
 
@@ -22,6 +31,11 @@ import static model.Constants.*;
  */
 public class SetUpViewController implements Controller {
 
+    /**
+     * Time without any change of the setup after which its images are preloaded
+     */
+    private static final Duration PRELOAD_DEBOUNCE_DELAY = Duration.millis(200);
+
     @FXML
     private Button returnButton;
     @FXML
@@ -38,6 +52,19 @@ public class SetUpViewController implements Controller {
 
     private final Manager manager;
 
+    /**
+     * Delay restarted by each change of the setup, the images being preloaded when it ends
+     */
+    private final PauseTransition preloadDebounce = new PauseTransition(PRELOAD_DEBOUNCE_DELAY);
+
+    /**
+     * Preloading of the cards of the last preloaded setup, cancelled when another setup needs other images
+     */
+    private CompletableFuture<Void> cardsPreloading;
+
+    private Theme preloadedTheme;
+    private int preloadedSize, preloadedCards;
+
     public SetUpViewController(Manager manager){
         this.manager = manager;
     }
@@ -49,6 +76,8 @@ public class SetUpViewController implements Controller {
      */
     @FXML
     private void handleReturnButtonAction(ActionEvent event){
+        preloadDebounce.stop();
+
         //Open the first view of the application
         DialogService.openFirstView(manager);
 
@@ -74,11 +103,17 @@ public class SetUpViewController implements Controller {
         int sizeL = Integer.parseInt(configLChoiceBox.getValue().toString());
 
         //Check if the player chose matching values
-        if(checkIfCanPlay(sizeH, sizeL, occurrence)){
+        if(checkIfCanPlay(theme, sizeH, sizeL, occurrence)){
+            preloadDebounce.stop();
 
             //Create the board with the different values
             Board board = BoardFactory.createBoard(sizeH, sizeL, theme, occurrence);
 
+            //Decode the images in the background at the size they will be displayed
+            //The game view starts the game once they are ready
+            board.fitCardImages(getExpectedCardsImagesSize(board.getBoardConfiguration()), 0);
+            board.prepare();
+
             //Close the current stage
             Stage stage = (Stage) playButton.getScene().getWindow();
             stage.close();
@@ -94,24 +129,31 @@ public class SetUpViewController implements Controller {
 
 
     /**
+     * @param theme Theme of the cards
      * @param sizeH Height of the board
      * @param sizeL Width of the board
      * @param occurrence Card's occurrence
      * @return true if the values are matching, false otherwise
      * Private method to check if the number of cards (sizeH*sizeL) </br>
-     * is matching with the occurrence.
+     * is matching with the occurrence and if the theme has enough cards for it. </br>
+     * The grid is checked against the current {@link GridLimits}, which may have changed since the ChoiceBoxes were loaded.
      */
-    private boolean checkIfCanPlay(int sizeH, int sizeL, int occurrence){
+    private boolean checkIfCanPlay(Theme theme, int sizeH, int sizeL, int occurrence){
         int gridSize = sizeH*sizeL;
 
-        return (gridSize % occurrence) == 0 && occurrence <= gridSize;
+        return sizeH <= GridLimits.getMaximalHeight() && sizeL <= GridLimits.getMaximalWidth()
+                && (gridSize % occurrence) == 0 && occurrence <= gridSize && theme.canPlay(sizeH, sizeL, occurrence);
     }
 
     /**
      * @param themeList Themes available from the manager.
-     * Load all themes into the theme ChoiceBox.
+     * Load the playable themes into the theme ChoiceBox. <br>
+     * Note : the themes are usually resolved in the background already (@see {@link ResourceFinder#resolveThemesAsync(List)})
      */
     private void initializeThemeChoiceBox(List<Theme> themeList){
+        //Folders without enough images, hidden card or background aren't themes
+        themeList = themeList.stream().filter(Theme::isPlayable).collect(Collectors.toList());
+
         themeChoiceBox.setItems(FXCollections.observableArrayList(themeList));
 
         //Set the default theme
@@ -119,31 +161,103 @@ public class SetUpViewController implements Controller {
     }
 
     /**
-     * Load the occurrence ChoiceBox. Get values from constant class @see {@link model.Constants}
+     * Load the occurrence ChoiceBox with the occurrences matching the selected grid size. <br>
+     * Only the divisors of the grid size are listed so that large grids don't flood the ChoiceBox. <br>
+     * Get values from constant class @see {@link model.Constants} and {@link GridLimits}
      */
-    private void initializeOccurrenceChoiceBox(){
-        ArrayList<Integer> occurrenceList = new ArrayList<>();
+    private void updateOccurrenceChoiceBox(){
+        int gridSize = configHChoiceBox.getValue() * configLChoiceBox.getValue();
+        int maxOccurrence = Math.min(gridSize, GridLimits.getMaxCardOccurrences());
+        Integer previousOccurrence = occurrenceChoiceBox.getValue();
 
-        for(int k = MINIMAL_CARD_OCCURRENCES,  l = 0; k <= MAX_CARD_OCCURRENCES; k++, l++ )
-            occurrenceList.add(l, k);
+        List<Integer> lowerDivisors = new ArrayList<>();
+        List<Integer> upperDivisors = new ArrayList<>();
 
-        occurrenceChoiceBox.setItems(FXCollections.observableArrayList(occurrenceList));
+        //Divisors are found by pairs (k, gridSize/k), so that only sqrt(gridSize) values are tested
+        for(int k = 1; (long) k * k <= gridSize; k++){
+            if(gridSize % k != 0)
+                continue;
 
-        //Set default value
-        occurrenceChoiceBox.getSelectionModel().select(0);
+            int pairedDivisor = gridSize / k;
+
+            if(k >= MINIMAL_CARD_OCCURRENCES && k <= maxOccurrence)
+                lowerDivisors.add(k);
+
+            if(pairedDivisor != k && pairedDivisor >= MINIMAL_CARD_OCCURRENCES && pairedDivisor <= maxOccurrence)
+                upperDivisors.add(0, pairedDivisor);
+        }
+
+        lowerDivisors.addAll(upperDivisors);
+
+        occurrenceChoiceBox.setItems(FXCollections.observableArrayList(lowerDivisors));
+
+        //Keep the previous value if it still matches the grid, otherwise set default value
+        if(previousOccurrence != null && lowerDivisors.contains(previousOccurrence))
+            occurrenceChoiceBox.setValue(previousOccurrence);
+        else
+            occurrenceChoiceBox.getSelectionModel().select(0);
+    }
+
+    /**
+     * Decode in the background the images needed by the selected setup, so that the game can start without waiting <br>
+     * Nothing is decoded again if the theme and the size of the cards haven't changed since the last preloading,
+     * and the cards of the previous setup which aren't decoded yet are skipped
+     */
+    private void preloadThemeImages(){
+        Theme theme = themeChoiceBox.getValue();
+        Integer occurrence = occurrenceChoiceBox.getValue();
+
+        //Nothing to warm up if this setup cannot be played (eg. a theme folder without enough images)
+        if(theme == null || occurrence == null
+                || !checkIfCanPlay(theme, configHChoiceBox.getValue(), configLChoiceBox.getValue(), occurrence))
+            return;
+
+        int neededCards = Math.min(theme.getCards().size(), configHChoiceBox.getValue() * configLChoiceBox.getValue() / occurrence);
+        int size = ImageCache.sizeTier(getExpectedCardsImagesSize(new BoardConfiguration(configHChoiceBox.getValue(), configLChoiceBox.getValue())));
+
+        //The images of this setup are already decoded, or being decoded
+        if(theme == preloadedTheme && size == preloadedSize && neededCards <= preloadedCards)
+            return;
+
+        if(cardsPreloading != null)
+            cardsPreloading.cancel(false);
+
+        List<URI> images = new ArrayList<>(theme.getCards().subList(0, neededCards));
+        images.add(theme.getHiddenCard());
+
+        cardsPreloading = ImageCache.getInstance().preload(images, size, size, null);
+
+        //The background doesn't depend on the grid
+        if(theme != preloadedTheme)
+            ImageCache.getInstance().preload(Collections.singletonList(theme.getBackground()), ImageCache.ORIGINAL_SIZE, ImageCache.ORIGINAL_SIZE, null);
+
+        preloadedTheme = theme;
+        preloadedSize = size;
+        preloadedCards = neededCards;
+    }
+
+    /**
+     * Get the size at which the cards will be displayed, as the game view is maximized on the primary screen
+     * @param boardConfiguration dimensions of the grid
+     * @return largest dimension of a card, in pixels
+     */
+    private double getExpectedCardsImagesSize(BoardConfiguration boardConfiguration){
+        double screenHeight = Screen.getPrimary().getVisualBounds().getHeight();
+
+        return Math.max(MainViewController.getCardWidth(screenHeight, boardConfiguration), MainViewController.getCardHeight(screenHeight, boardConfiguration));
     }
 
     /**
-     * Load the ChoiceBoxes for the height and the width of the board @see {@link model.Constants}
+     * Load the ChoiceBoxes for the height and the width of the board @see {@link model.Constants} and {@link GridLimits}
      */
     private void initializeConfigChoicesBoxes(){
         ArrayList<Integer> configList1 = new ArrayList<>();
         ArrayList<Integer> configList2 = new ArrayList<>();
 
-        for(int k = MINIMAL_GRID_HEIGHT_SIZE,  l = 0; k <= MAXIMAL_GRID_HEIGHT_SIZE; k++, l++ )
+        for(int k = MINIMAL_GRID_HEIGHT_SIZE,  l = 0; k <= GridLimits.getMaximalHeight(); k++, l++ )
             configList1.add(l, k);
 
-        for(int k = MINIMAL_GRID_WIDTH_SIZE,  l = 0; k <= MAXIMAL_GRID_WIDTH_SIZE; k++, l++ )
+        for(int k = MINIMAL_GRID_WIDTH_SIZE,  l = 0; k <= GridLimits.getMaximalWidth(); k++, l++ )
             configList2.add(l, k);
 
         configHChoiceBox.setItems(FXCollections.observableArrayList(configList1));
@@ -161,8 +275,26 @@ public class SetUpViewController implements Controller {
     private void initialize() {
         //Initialize all the choices boxes
         initializeThemeChoiceBox(manager.getThemes());
-        initializeOccurrenceChoiceBox();
         initializeConfigChoicesBoxes();
+        updateOccurrenceChoiceBox();
+
+        //Warm up the images of the selected setup while the player is choosing
+        //Note : the changes made one after the other (eg. the occurrences updated along with the grid) are preloaded once
+        preloadDebounce.setOnFinished(event -> preloadThemeImages());
+        preloadThemeImages();
+
+        //The available occurrences depend on the grid size
+        configHChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            updateOccurrenceChoiceBox();
+            preloadDebounce.playFromStart();
+        });
+        configLChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> {
+            updateOccurrenceChoiceBox();
+            preloadDebounce.playFromStart();
+        });
+
+        themeChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> preloadDebounce.playFromStart());
+        occurrenceChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> preloadDebounce.playFromStart());
 
         //Apply a style sheet to the scene
         Platform.runLater(() -> playButton.getScene().getStylesheets().add("/view/css/Style.css"));
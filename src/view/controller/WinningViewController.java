@@ -12,6 +12,8 @@ import javafx.scene.layout.FlowPane;
 import javafx.stage.Stage;
 import model.*;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Controller to manage the interactions between the model and the WinningView <br>
  *     (the one displayed at the end of the game)
@@ -47,17 +49,22 @@ public class WinningViewController implements Controller {
     @FXML
     private void handleMainMenuButtonAction(ActionEvent event){
         //Save the player with the selected way of saving
-        savePlayer(dataManagerChoiceBox.getValue());
+        CompletableFuture<Void> save = savePlayer(dataManagerChoiceBox.getValue());
 
         //Close the current view and display the main menu
         DialogService.openFirstView(manager);
 
-        //PopUp to notify the player that his game is saved
-        DialogService.openPopUpView("Your game have been correctly saved !");
-
         //Close the current stage
         Stage stage = (Stage) mainMenuButton.getScene().getWindow();
         stage.close();
+
+        //PopUp to notify the player once his game is saved, the save being made in the background
+        save.whenComplete((result, exception) -> Platform.runLater(() -> {
+            if(exception == null)
+                DialogService.openPopUpView("Your game have been correctly saved !");
+            else
+                DialogService.openPopUpView("Your game couldn't be saved !");
+        }));
     }
 
     /**
@@ -65,21 +72,17 @@ public class WinningViewController implements Controller {
      * This method is called when you click on the serialization you chosen
      */
 
-    private void savePlayer(DataManager dataManager){
+    private CompletableFuture<Void> savePlayer(DataManager dataManager){
         //Create a new score with the player
         Score score = board.getScore();
 
         //Set the way to save and load the data
-        manager.setDataManager(dataManager);
-
-        //Load all players
-        manager.loadPlayers();
+        //Note : the players are loaded again unless they are kept up to date (eg. a journal already loaded)
+        manager.useDataManager(dataManager);
 
         //Verify if the player exist or not. Them put him into the List
-        manager.createOrUpdatePlayer(pseudoTextField.getText(), score);
-
-        //Write the player into the correct type of file
-        manager.savePlayers();
+        //Then write the score into the correct type of file, in the background
+        return manager.recordScoreAsync(pseudoTextField.getText(), score);
     }
 
     /**